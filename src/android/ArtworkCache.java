@@ -0,0 +1,276 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+class ArtworkCache {
+    private static final String TAG = "ArtworkCache";
+    private static final String DIRECTORY = "media-session-artwork";
+    private static final String DATA_SUFFIX = ".img";
+    private static final String META_SUFFIX = ".meta";
+
+    static class DiskEntry {
+        final File file;
+        final String etag;
+        final String lastModified;
+
+        DiskEntry(File file, String etag, String lastModified) {
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final BitmapPool pool;
+    private final File directory;
+    private final long maxDiskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    ArtworkCache(File cacheDir, int maxMemoryBytes, long maxDiskBytes, BitmapPool pool) {
+        this.directory = new File(cacheDir, DIRECTORY);
+        this.maxDiskBytes = maxDiskBytes;
+        this.pool = pool;
+        this.memoryCache = new LruCache<String, Bitmap>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (evicted) {
+                    memoryEvictions.incrementAndGet();
+                }
+                if (oldValue != newValue) {
+                    pool.put(oldValue);
+                }
+            }
+        };
+    }
+
+    static String key(String src) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] chunk = new byte[8192];
+            int length = 0;
+            for (int i = 0; i < src.length(); i++) {
+                char c = src.charAt(i);
+                chunk[length++] = (byte) (c >> 8);
+                chunk[length++] = (byte) c;
+                if (length == chunk.length) {
+                    digest.update(chunk, 0, length);
+                    length = 0;
+                }
+            }
+            digest.update(chunk, 0, length);
+            byte[] hash = digest.digest();
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(src.hashCode()) + "-" + src.length();
+        }
+    }
+
+    public Bitmap getBitmap(String key) {
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+        }
+        return bitmap;
+    }
+
+    // Taking the pool lock first means an eviction either happened before the lookup or sees the pin
+    public Bitmap getPinnedBitmap(String key) {
+        synchronized (pool) {
+            Bitmap bitmap = getBitmap(key);
+            if (bitmap != null) {
+                pool.pin(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    public void pin(Bitmap bitmap) {
+        pool.pin(bitmap);
+    }
+
+    public void unpin(Bitmap bitmap) {
+        pool.unpin(bitmap);
+    }
+
+    public boolean containsBitmap(String key) {
+        return memoryCache.get(key) != null;
+    }
+
+    public void putBitmap(String key, Bitmap bitmap) {
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        }
+    }
+
+    public synchronized DiskEntry getDiskEntry(String key) {
+        File file = new File(directory, key + DATA_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties meta = new Properties();
+        File metaFile = new File(directory, key + META_SUFFIX);
+        if (metaFile.isFile()) {
+            try (InputStream in = new FileInputStream(metaFile)) {
+                meta.load(in);
+            } catch (IOException e) {
+                Log.w(TAG, "Error reading artwork cache metadata", e);
+            }
+        }
+        return new DiskEntry(file, meta.getProperty("etag"), meta.getProperty("lastModified"));
+    }
+
+    public synchronized void markDiskHit(DiskEntry entry, boolean revalidated) {
+        diskHits.incrementAndGet();
+        if (revalidated) {
+            revalidations.incrementAndGet();
+        }
+        entry.file.setLastModified(System.currentTimeMillis());
+    }
+
+    public DiskEntry putDiskEntry(String key, InputStream in, String etag, String lastModified) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create artwork cache directory");
+        }
+        File temp = File.createTempFile(key, ".tmp", directory);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            File file = new File(directory, key + DATA_SUFFIX);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot store artwork in cache");
+            }
+            Properties meta = new Properties();
+            if (etag != null) {
+                meta.setProperty("etag", etag);
+            }
+            if (lastModified != null) {
+                meta.setProperty("lastModified", lastModified);
+            }
+            try (OutputStream out = new FileOutputStream(new File(directory, key + META_SUFFIX))) {
+                meta.store(out, null);
+            }
+            trimDisk(file);
+            return new DiskEntry(file, etag, lastModified);
+        }
+    }
+
+    // The entry just written is about to be decoded, so it is never evicted by its own write
+    private void trimDisk(File written) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(DATA_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            if (file.equals(written)) {
+                continue;
+            }
+            total -= file.length();
+            deleteEntry(file);
+            diskEvictions.incrementAndGet();
+        }
+    }
+
+    private void deleteEntry(File file) {
+        String name = file.getName();
+        String key = name.substring(0, name.length() - DATA_SUFFIX.length());
+        file.delete();
+        new File(directory, key + META_SUFFIX).delete();
+    }
+
+    public synchronized void clear() {
+        memoryCache.evictAll();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public void trimMemory(boolean critical) {
+        if (critical) {
+            memoryCache.evictAll();
+        } else {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+        pool.clear();
+    }
+
+    public void countMiss() {
+        misses.incrementAndGet();
+    }
+
+    public JSONObject getStats() throws JSONException {
+        long diskSize = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                diskSize += file.length();
+            }
+        }
+        JSONObject stats = new JSONObject();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("revalidations", revalidations.get());
+        stats.put("memoryEvictions", memoryEvictions.get());
+        stats.put("diskEvictions", diskEvictions.get());
+        stats.put("memorySize", memoryCache.size());
+        stats.put("diskSize", diskSize);
+        return stats;
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Base64;
+import android.util.Base64InputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+class ArtworkDecoder {
+    interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private static final int FINGERPRINT_GRID = 32;
+
+    private final int maxSize;
+    private final Bitmap.Config config;
+    private final BitmapPool pool;
+    private final boolean reuseBitmaps;
+
+    ArtworkDecoder(int maxSize, String configName, BitmapPool pool) {
+        this.maxSize = maxSize;
+        this.config = parseConfig(configName);
+        this.pool = pool;
+        this.reuseBitmaps = config == Bitmap.Config.ARGB_8888 || config == Bitmap.Config.RGB_565;
+    }
+
+    private static Bitmap.Config parseConfig(String configName) {
+        if ("RGB_565".equalsIgnoreCase(configName)) {
+            return Bitmap.Config.RGB_565;
+        }
+        if ("HARDWARE".equalsIgnoreCase(configName) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Bitmap.Config.HARDWARE;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public Bitmap decodeFile(File file) throws IOException {
+        Trace.beginSection("ArtworkDecoder.decodeFile");
+        final long start = SystemClock.elapsedRealtimeNanos();
+        try (FileInputStream in = new FileInputStream(file)) {
+            FileDescriptor fd = in.getFD();
+            FileChannel channel = in.getChannel();
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFileDescriptor(fd, null, options);
+            return record(decodeSized(options, decodeOptions -> {
+                channel.position(0);
+                return BitmapFactory.decodeFileDescriptor(fd, null, decodeOptions);
+            }), start);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    public Bitmap decodeBytes(final byte[] data) throws IOException {
+        return decode(() -> new ByteArrayInputStream(data));
+    }
+
+    public Bitmap decodeBase64(final String data, final int offset) throws IOException {
+        return decode(() -> new Base64InputStream(new AsciiInputStream(data, offset), Base64.DEFAULT));
+    }
+
+    public Bitmap decode(Source source) throws IOException {
+        Trace.beginSection("ArtworkDecoder.decode");
+        final long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            try (InputStream in = source.open()) {
+                BitmapFactory.decodeStream(in, null, options);
+            }
+            return record(decodeSized(options, decodeOptions -> {
+                try (InputStream in = source.open()) {
+                    return BitmapFactory.decodeStream(in, null, decodeOptions);
+                }
+            }), start);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private interface Pass {
+        Bitmap decode(BitmapFactory.Options options) throws IOException;
+    }
+
+    private Bitmap decodeSized(BitmapFactory.Options options, Pass pass) throws IOException {
+        if (!configure(options)) {
+            return null;
+        }
+        try {
+            return pass.decode(options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null) {
+                throw e;
+            }
+            pool.put(options.inBitmap);
+            options.inBitmap = null;
+            return pass.decode(options);
+        }
+    }
+
+    private static Bitmap record(Bitmap bitmap, long start) {
+        MediaSessionStats.time(MediaSessionStats.ARTWORK_DECODE, SystemClock.elapsedRealtimeNanos() - start);
+        if (bitmap != null) {
+            MediaSessionStats.add(MediaSessionStats.ARTWORK_BITMAP_BYTES, bitmap.getAllocationByteCount());
+        }
+        return bitmap;
+    }
+
+    static long fingerprint(String src, Bitmap bitmap) {
+        if (bitmap == null) {
+            return 0;
+        }
+        long hash = src.hashCode();
+        hash = hash * 31 + bitmap.getWidth();
+        hash = hash * 31 + bitmap.getHeight();
+        final boolean hardware = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+        if (!hardware) {
+            final int width = bitmap.getWidth();
+            final int height = bitmap.getHeight();
+            for (int y = 0; y < FINGERPRINT_GRID; y++) {
+                for (int x = 0; x < FINGERPRINT_GRID; x++) {
+                    hash = hash * 31 + bitmap.getPixel(x * width / FINGERPRINT_GRID, y * height / FINGERPRINT_GRID);
+                }
+            }
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private boolean configure(BitmapFactory.Options options) {
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return false;
+        }
+
+        int longestEdge = Math.max(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (longestEdge / (sampleSize * 2) >= maxSize) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+
+        int width = options.outWidth / sampleSize;
+        int height = options.outHeight / sampleSize;
+        int sampledEdge = longestEdge / sampleSize;
+        if (sampledEdge > maxSize) {
+            options.inScaled = true;
+            options.inDensity = sampledEdge;
+            options.inTargetDensity = maxSize;
+            width = Math.round((float) width * maxSize / sampledEdge);
+            height = Math.round((float) height * maxSize / sampledEdge);
+        }
+
+        if (reuseBitmaps) {
+            long bytes = (long) width * height * (config == Bitmap.Config.RGB_565 ? 2 : 4);
+            options.inMutable = true;
+            options.inBitmap = pool.get(width, height, config, bytes);
+        }
+        return true;
+    }
+
+    private static class AsciiInputStream extends InputStream {
+        private final String data;
+        private int position;
+
+        AsciiInputStream(String data, int offset) {
+            this.data = data;
+            this.position = offset;
+        }
+
+        @Override
+        public int read() {
+            return position < data.length() ? data.charAt(position++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            int remaining = data.length() - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int count = Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) data.charAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return data.length() - position;
+        }
+    }
+}
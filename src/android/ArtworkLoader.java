@@ -0,0 +1,418 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import org.apache.cordova.CordovaResourceApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ArtworkLoader {
+    private static final String TAG = "ArtworkLoader";
+    private static final int MAX_THREADS = 2;
+    private static final int MAX_QUEUED = 4;
+    private static final int MAX_PREFETCH_QUEUED = 16;
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int READ_TIMEOUT_MS = 15000;
+
+    interface Callback {
+        void onArtworkLoaded(String src, Bitmap artwork, long fingerprint);
+    }
+
+    // Like DiscardOldestPolicy, but the dropped load is cancelled so its target stops reporting it as loading
+    // and the next request for the same artwork starts it again
+    private static final RejectedExecutionHandler CANCEL_OLDEST = (runnable, pool) -> {
+        if (pool.isShutdown()) {
+            ((Future<?>) runnable).cancel(false);
+            return;
+        }
+        Runnable oldest = pool.getQueue().poll();
+        if (oldest != null) {
+            ((Future<?>) oldest).cancel(false);
+        }
+        pool.execute(runnable);
+    };
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_QUEUED), CANCEL_OLDEST);
+    private final ThreadPoolExecutor prefetchExecutor = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(MAX_PREFETCH_QUEUED),
+            runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                runnable.run();
+            }, "ArtworkPrefetch"),
+            new ThreadPoolExecutor.DiscardOldestPolicy());
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ArtworkCache cache;
+    private final ArtworkDecoder decoder;
+    private final CordovaResourceApi resourceApi;
+
+    ArtworkLoader(ArtworkCache cache, ArtworkDecoder decoder, CordovaResourceApi resourceApi) {
+        this.cache = cache;
+        this.decoder = decoder;
+        this.resourceApi = resourceApi;
+        executor.allowCoreThreadTimeOut(true);
+        prefetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public ArtworkCache getCache() {
+        return cache;
+    }
+
+    public Target newTarget() {
+        return new Target();
+    }
+
+    // Each session loads through its own target, a new load only supersedes the previous one of the same target
+    class Target {
+        private final AtomicInteger generation = new AtomicInteger();
+        private Future<?> pending = null;
+
+        public void load(String src, Callback callback) {
+            load(src, null, callback);
+        }
+
+        public synchronized void load(final String src, final byte[] data, final Callback callback) {
+            final int requestGeneration = generation.incrementAndGet();
+            if (pending != null) {
+                pending.cancel(true);
+                pending = null;
+            }
+
+            MediaSessionStats.count(MediaSessionStats.ARTWORK_REQUESTS);
+            final String key = ArtworkCache.key(src);
+            final Bitmap cached = cache.getPinnedBitmap(key);
+            if (cached != null) {
+                deliver(src, cached, requestGeneration, callback);
+                return;
+            }
+
+            pending = executor.submit(() -> {
+                Bitmap bitmap;
+                try {
+                    bitmap = resolve(src, key, data, false);
+                } catch (IOException e) {
+                    Log.e(TAG, "Error loading artwork", e);
+                    return;
+                }
+                if (bitmap == null) {
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted() || generation.get() != requestGeneration) {
+                    cache.unpin(bitmap);
+                    return;
+                }
+                deliver(src, bitmap, requestGeneration, callback);
+            });
+        }
+
+        // The bitmap arrives pinned and stays so until the callback had the chance to retain it
+        private void deliver(String src, Bitmap bitmap, int requestGeneration, Callback callback) {
+            final long fingerprint = ArtworkDecoder.fingerprint(src, bitmap);
+            mainHandler.post(() -> {
+                try {
+                    if (generation.get() == requestGeneration) {
+                        callback.onArtworkLoaded(src, bitmap, fingerprint);
+                    }
+                } finally {
+                    cache.unpin(bitmap);
+                }
+            });
+        }
+
+        public synchronized boolean isLoading() {
+            return pending != null && !pending.isDone();
+        }
+
+        public synchronized void cancel() {
+            generation.incrementAndGet();
+            if (pending != null) {
+                pending.cancel(true);
+                pending = null;
+            }
+        }
+    }
+
+    public void prefetch(List<String> sources) {
+        for (final String src : sources) {
+            if (src.isEmpty() || src.startsWith("blob:")) {
+                continue;
+            }
+            final String key = ArtworkCache.key(src);
+            if (cache.containsBitmap(key) || inFlight.containsKey(key)) {
+                continue;
+            }
+            prefetchExecutor.execute(() -> {
+                try {
+                    Bitmap bitmap = resolve(src, key, null, true);
+                    if (bitmap != null) {
+                        cache.unpin(bitmap);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Error prefetching artwork", e);
+                } finally {
+                    // A foreground waiter may have raised this thread while it ran a shared fetch
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_LOWEST);
+                }
+            });
+        }
+    }
+
+    // Concurrent requests for the same source share a single fetch and decode.
+    // The result is returned pinned, the caller unpins it once it is done with it
+    private Bitmap resolve(String src, String key, byte[] data, boolean prefetch) throws IOException {
+        while (true) {
+            Flight task = new Flight(() -> {
+                Bitmap bitmap;
+                if (data != null) {
+                    cache.countMiss();
+                    bitmap = decoder.decodeBytes(data);
+                } else {
+                    bitmap = urlToBitmap(src, key);
+                }
+                if (bitmap != null) {
+                    // Pinned before it is visible in the cache, so an eviction cannot hand it out for reuse
+                    cache.pin(bitmap);
+                    cache.putBitmap(key, bitmap);
+                }
+                return bitmap;
+            }, prefetch);
+            Flight flight = inFlight.putIfAbsent(key, task);
+            if (flight == null) {
+                flight = task;
+                try {
+                    task.runOnCurrentThread();
+                } finally {
+                    inFlight.remove(key, task);
+                }
+            } else if (!flight.join()) {
+                // The flight finished and let go of its result, which is in the memory cache if it survived
+                Bitmap cached = cache.getPinnedBitmap(key);
+                if (cached != null) {
+                    return cached;
+                }
+                continue;
+            } else if (!prefetch) {
+                flight.boost();
+            }
+
+            try {
+                Bitmap bitmap = flight.get();
+                if (bitmap != null) {
+                    cache.pin(bitmap);
+                }
+                return bitmap;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            } finally {
+                flight.leave();
+            }
+        }
+    }
+
+    // Remembers the thread running a shared fetch, so a foreground waiter joining a prefetch
+    // is not left behind a thread at the lowest priority. The result stays pinned until every
+    // waiter has pinned it for itself
+    private final class Flight extends FutureTask<Bitmap> {
+        private final boolean prefetch;
+        private int runnerTid;
+        private int waiters = 1;
+        private boolean released = false;
+
+        // Created on the thread that runs it, before it becomes visible to other waiters
+        Flight(Callable<Bitmap> callable, boolean prefetch) {
+            super(callable);
+            this.prefetch = prefetch;
+            this.runnerTid = Process.myTid();
+        }
+
+        void runOnCurrentThread() {
+            try {
+                run();
+            } finally {
+                synchronized (this) {
+                    runnerTid = 0;
+                }
+            }
+        }
+
+        synchronized void boost() {
+            if (prefetch && runnerTid != 0) {
+                Process.setThreadPriority(runnerTid, Process.THREAD_PRIORITY_DEFAULT);
+            }
+        }
+
+        synchronized boolean join() {
+            if (released) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        void leave() {
+            synchronized (this) {
+                if (--waiters > 0) {
+                    return;
+                }
+                released = true;
+            }
+            Bitmap result = resultNow();
+            if (result != null) {
+                cache.unpin(result);
+            }
+        }
+
+        private Bitmap resultNow() {
+            if (!isDone() || isCancelled()) {
+                return null;
+            }
+            try {
+                return get();
+            } catch (InterruptedException | ExecutionException e) {
+                return null;
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        prefetchExecutor.shutdownNow();
+    }
+
+    Bitmap urlToBitmap(String url, String key) throws IOException {
+        final boolean blobUrl = url.startsWith("blob:");
+        if (blobUrl) {
+            Log.i(TAG, "Blob URL artwork can only be loaded from the data sent along with it");
+            return null;
+        }
+
+        final boolean httpUrl = url.startsWith("http");
+        if (httpUrl) {
+            return fetchHttp(url, key);
+        }
+
+        int base64Index = url.indexOf(";base64,");
+        if (base64Index != -1) {
+            cache.countMiss();
+            return decoder.decodeBase64(url, base64Index + 8);
+        }
+
+        return openLocal(url);
+    }
+
+    private Bitmap openLocal(String url) throws IOException {
+        final Uri uri = resourceApi.remapUri(Uri.parse(url));
+        switch (CordovaResourceApi.getUriType(uri)) {
+            case CordovaResourceApi.URI_TYPE_FILE:
+                File file = resourceApi.mapUriToFile(uri);
+                if (file == null) {
+                    return null;
+                }
+                cache.countMiss();
+                return decoder.decodeFile(file);
+            case CordovaResourceApi.URI_TYPE_CONTENT:
+            case CordovaResourceApi.URI_TYPE_ASSET:
+            case CordovaResourceApi.URI_TYPE_RESOURCE:
+                cache.countMiss();
+                return decoder.decode(() -> resourceApi.openForRead(uri, true).inputStream);
+            default:
+                Log.i(TAG, "Unsupported artwork source " + uri.getScheme());
+                return null;
+        }
+    }
+
+    private Bitmap fetchHttp(String url, String key) throws IOException {
+        ArtworkCache.DiskEntry entry = cache.getDiskEntry(key);
+
+        File file;
+        Trace.beginSection("ArtworkLoader.fetchHttp");
+        final long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            file = fetchToDisk(url, key, entry);
+        } finally {
+            MediaSessionStats.time(MediaSessionStats.ARTWORK_FETCH, SystemClock.elapsedRealtimeNanos() - start);
+            Trace.endSection();
+        }
+        return decoder.decodeFile(file);
+    }
+
+    private File fetchToDisk(String url, String key, ArtworkCache.DiskEntry entry) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) (new URL(url)).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setDoInput(true);
+        if (entry != null && entry.etag != null) {
+            connection.setRequestProperty("If-None-Match", entry.etag);
+        }
+        if (entry != null && entry.lastModified != null) {
+            connection.setRequestProperty("If-Modified-Since", entry.lastModified);
+        }
+
+        try {
+            connection.connect();
+            if (entry != null && connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                connection.getInputStream().close();
+                cache.markDiskHit(entry, true);
+                return entry.file;
+            }
+
+            ArtworkCache.DiskEntry stored;
+            try (InputStream inputStream = connection.getInputStream()) {
+                stored = cache.putDiskEntry(key, inputStream,
+                        connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+            }
+            MediaSessionStats.add(MediaSessionStats.ARTWORK_BYTES_FETCHED, stored.file.length());
+            cache.countMiss();
+            return stored.file;
+        } catch (IOException e) {
+            // Reading the error body lets the connection go back to the keep-alive pool
+            try (InputStream errorStream = connection.getErrorStream()) {
+                if (errorStream != null) {
+                    byte[] buffer = new byte[1024];
+                    while (errorStream.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            } catch (IOException ignored) {
+                connection.disconnect();
+            }
+            if (entry == null) {
+                throw e;
+            }
+            Log.w(TAG, "Artwork revalidation failed, using cached copy", e);
+            cache.markDiskHit(entry, false);
+            return entry.file;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class BitmapPool {
+    private final long maxBytes;
+    private final List<Bitmap> bitmaps = new ArrayList<>();
+    private long size = 0;
+    private final Map<Object, WeakReference<Bitmap>[]> retained = new HashMap<>();
+    private final Map<Bitmap, Integer> pins = new IdentityHashMap<>();
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // The last two bitmaps handed to each session may still be on screen, so they are never recycled.
+    // The references are weak, a bitmap nothing else holds any more is no longer displayed and can be freed
+    public synchronized void retain(Object owner, Bitmap bitmap) {
+        WeakReference<Bitmap>[] slots = retained.get(owner);
+        if (slots == null) {
+            @SuppressWarnings("unchecked")
+            WeakReference<Bitmap>[] created = (WeakReference<Bitmap>[]) new WeakReference<?>[2];
+            slots = created;
+            retained.put(owner, slots);
+        }
+        if (slots[0] == null || bitmap != slots[0].get()) {
+            slots[1] = slots[0];
+            slots[0] = new WeakReference<>(bitmap);
+        }
+    }
+
+    public synchronized void release(Object owner) {
+        retained.remove(owner);
+    }
+
+    // Pins cover a bitmap from the moment it is decoded or taken from the cache until a session retained it
+    public synchronized void pin(Bitmap bitmap) {
+        Integer count = pins.get(bitmap);
+        pins.put(bitmap, count == null ? 1 : count + 1);
+    }
+
+    public synchronized void unpin(Bitmap bitmap) {
+        Integer count = pins.get(bitmap);
+        if (count == null || count == 1) {
+            pins.remove(bitmap);
+        } else {
+            pins.put(bitmap, count - 1);
+        }
+    }
+
+    private boolean isRetained(Bitmap bitmap) {
+        for (WeakReference<Bitmap>[] slots : retained.values()) {
+            for (WeakReference<Bitmap> slot : slots) {
+                if (slot != null && slot.get() == bitmap) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || !bitmap.isMutable() || bitmap.isRecycled()
+                || pins.containsKey(bitmap) || isRetained(bitmap) || bitmaps.contains(bitmap)) {
+            return;
+        }
+        int bytes = bitmap.getAllocationByteCount();
+        if (bytes > maxBytes) {
+            return;
+        }
+        bitmaps.add(bitmap);
+        size += bytes;
+        while (size > maxBytes) {
+            size -= bitmaps.remove(0).getAllocationByteCount();
+        }
+    }
+
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config, long bytes) {
+        Bitmap bestFit = null;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                bestFit = bitmap;
+                break;
+            }
+            if (bitmap.getAllocationByteCount() >= bytes
+                    && (bestFit == null || bitmap.getAllocationByteCount() < bestFit.getAllocationByteCount())) {
+                bestFit = bitmap;
+            }
+        }
+        if (bestFit != null) {
+            bitmaps.remove(bestFit);
+            size -= bestFit.getAllocationByteCount();
+        }
+        return bestFit;
+    }
+
+    public synchronized void clear() {
+        bitmaps.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,448 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.v4.media.MediaMetadataCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+import android.support.v4.media.session.PlaybackStateCompat;
+
+import androidx.core.app.NotificationCompat;
+import androidx.media.app.NotificationCompat.MediaStyle;
+import androidx.media.session.MediaButtonReceiver;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ManagedSession {
+    static final String DEFAULT_ID = "default";
+
+    private static final int[] NOTIFICATION_ACTION_ICONS = {
+            android.R.drawable.ic_media_previous,
+            android.R.drawable.ic_media_rew,
+            android.R.drawable.ic_media_play,
+            android.R.drawable.ic_media_pause,
+            android.R.drawable.ic_media_ff,
+            android.R.drawable.ic_media_next,
+            0,
+            android.R.drawable.ic_media_pause,
+            0,
+            0
+    };
+    private static final String[] NOTIFICATION_ACTION_TITLES = {
+            "Previous Track", "Seek Backward", "Play", "Pause", "Seek Forward", "Next Track", "Seek To", "Stop", "Skip To Queue Item", "Play From Media Id"
+    };
+    private static final long[] MEDIA_BUTTON_ACTIONS = {
+            PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS,
+            PlaybackStateCompat.ACTION_REWIND,
+            PlaybackStateCompat.ACTION_PLAY,
+            PlaybackStateCompat.ACTION_PAUSE,
+            PlaybackStateCompat.ACTION_FAST_FORWARD,
+            PlaybackStateCompat.ACTION_SKIP_TO_NEXT,
+            PlaybackStateCompat.ACTION_SEEK_TO,
+            PlaybackStateCompat.ACTION_STOP,
+            PlaybackStateCompat.ACTION_SKIP_TO_QUEUE_ITEM,
+            PlaybackStateCompat.ACTION_PLAY_FROM_MEDIA_ID
+    };
+    private static final long UPDATE_WINDOW_MS = 100;
+
+    private final MediaSessionService service;
+    private final String id;
+    private final int notificationId;
+
+    private MediaSessionCompat mediaSession;
+    private MediaSessionCallback callback;
+    private PlaybackStateCompat.Builder playbackStateBuilder;
+    private MediaMetadataCompat.Builder mediaMetadataBuilder;
+    private NotificationManager notificationManager;
+    private NotificationCompat.Builder notificationBuilder;
+    private final NotificationCompat.Builder[] notificationSkeletons = new NotificationCompat.Builder[MediaSessionActions.MASK_COUNT];
+    private final NotificationCompat.Action[] notificationActions = new NotificationCompat.Action[MediaSessionActions.NAMES.length];
+    private PendingIntent contentIntent;
+    private NotificationScheduler notificationScheduler;
+    private boolean notificationShown = false;
+
+    private final AtomicReference<SessionState> state = new AtomicReference<>(SessionState.EMPTY);
+    private SessionState appliedState = null;
+    private final AtomicReference<List<MediaSessionCompat.QueueItem>> queue = new AtomicReference<>(null);
+    private List<MediaSessionCompat.QueueItem> appliedQueue = null;
+    private int appliedVisibleActions = 0;
+
+    private final PlaybackClock clock = new PlaybackClock();
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean applyPosted = new AtomicBoolean(false);
+    private final AtomicBoolean applyScheduled = new AtomicBoolean(false);
+    private final Runnable postedApply = this::apply;
+    private final Runnable scheduledApply = this::apply;
+
+    ManagedSession(MediaSessionService service, String id, int notificationId) {
+        this.service = service;
+        this.id = id;
+        this.notificationId = notificationId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getNotificationId() {
+        return notificationId;
+    }
+
+    public boolean isInitialized() {
+        return mediaSession != null;
+    }
+
+    public boolean isPlaying() {
+        final SessionState current = appliedState;
+        return current != null && current.playbackState == PlaybackStateCompat.STATE_PLAYING;
+    }
+
+    MediaSessionCompat getMediaSession() {
+        return mediaSession;
+    }
+
+    void initialize(NotificationManager notificationManager, PendingIntent contentIntent) {
+        Trace.beginSection("ManagedSession.initialize");
+        mediaSession = new MediaSessionCompat(service, DEFAULT_ID.equals(id) ? "WebViewMediaSession" : "WebViewMediaSession:" + id);
+        callback = new MediaSessionCallback(this);
+
+        final SessionState current = state.get();
+        playbackStateBuilder = new PlaybackStateCompat.Builder()
+                .setActions(PlaybackStateCompat.ACTION_PLAY)
+                .setState(PlaybackStateCompat.STATE_PAUSED, current.position, current.playbackSpeed);
+        mediaSession.setPlaybackState(playbackStateBuilder.build());
+
+        mediaMetadataBuilder = new MediaMetadataCompat.Builder()
+                .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, current.duration);
+        mediaSession.setMetadata(mediaMetadataBuilder.build());
+
+        this.notificationManager = notificationManager;
+        this.contentIntent = contentIntent;
+        notificationBuilder = notificationSkeleton(0);
+        notificationScheduler = new NotificationScheduler(notificationManager, notificationId, this::buildNotification);
+        Trace.endSection();
+    }
+
+    void activate() {
+        mediaSession.setCallback(callback);
+        mediaSession.setActive(true);
+    }
+
+    void restore(SessionState restored) {
+        state.set(restored);
+    }
+
+    void standby() {
+        standby(false);
+    }
+
+    // The service keeps the last notification up while it waits in standby, so the user can resume from it
+    void standby(boolean keepNotification) {
+        handler.removeCallbacks(postedApply);
+        handler.removeCallbacks(scheduledApply);
+        if (mediaSession == null) {
+            return;
+        }
+        notificationScheduler.cancel();
+        if (!keepNotification) {
+            notificationManager.cancel(notificationId);
+            notificationShown = false;
+        }
+        mediaSession.setActive(false);
+        mediaSession.setCallback(null);
+    }
+
+    void release() {
+        standby();
+        if (mediaSession != null) {
+            mediaSession.release();
+            mediaSession = null;
+        }
+    }
+
+    void trimMemory() {
+        // Unused skeletons can still reference the artwork they were last built with
+        for (int i = 0; i < notificationSkeletons.length; i++) {
+            if (notificationSkeletons[i] != notificationBuilder) {
+                notificationSkeletons[i] = null;
+            }
+        }
+    }
+
+    void dispatchAction(int action) {
+        service.dispatch(plugin -> plugin.actionCallback(id, action));
+    }
+
+    void dispatchAction(int action, double value) {
+        service.dispatch(plugin -> plugin.actionCallback(id, action, value));
+    }
+
+    void dispatchAction(int action, String value) {
+        service.dispatch(plugin -> plugin.actionCallback(id, action, value));
+    }
+
+    private void mutate(Mutation mutation) {
+        SessionState current;
+        SessionState next;
+        do {
+            current = state.get();
+            next = mutation.apply(current);
+        } while (next != current && !state.compareAndSet(current, next));
+    }
+
+    private interface Mutation {
+        SessionState apply(SessionState state);
+    }
+
+    public void setPlaybackState(int playbackState) {
+        mutate(s -> s.withPlaybackState(playbackState));
+    }
+
+    public void setTitle(String title) {
+        mutate(s -> s.withTitle(title));
+    }
+
+    public void setArtist(String artist) {
+        mutate(s -> s.withArtist(artist));
+    }
+
+    public void setAlbum(String album) {
+        mutate(s -> s.withAlbum(album));
+    }
+
+    public void setArtwork(Bitmap artwork, long fingerprint) {
+        mutate(s -> s.withArtwork(artwork, fingerprint));
+    }
+
+    public void setDuration(long duration) {
+        mutate(s -> s.withDuration(duration));
+    }
+
+    public void setPosition(long position) {
+        MediaSessionStats.count(MediaSessionStats.POSITION_UPDATES);
+        final long now = SystemClock.elapsedRealtime();
+        mutate(s -> s.withPosition(position, now));
+    }
+
+    public void setPlaybackSpeed(float playbackSpeed) {
+        mutate(s -> s.withPlaybackSpeed(playbackSpeed));
+    }
+
+    public void setActionMask(int actionMask) {
+        mutate(s -> s.withActionMask(actionMask));
+    }
+
+    public void setActiveQueueItemId(long activeQueueItemId) {
+        mutate(s -> s.withActiveQueueItemId(activeQueueItemId));
+    }
+
+    public void setQueue(List<MediaSessionCompat.QueueItem> queue) {
+        this.queue.set(queue);
+    }
+
+    public long getPosition() {
+        return clock.position(SystemClock.elapsedRealtime());
+    }
+
+    void seekTo(long position) {
+        setPosition(position);
+        update();
+    }
+
+    public void update() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            apply();
+        } else if (applyPosted.compareAndSet(false, true)) {
+            handler.post(postedApply);
+        }
+    }
+
+    public void scheduleUpdate() {
+        if (applyScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(scheduledApply, UPDATE_WINDOW_MS);
+        }
+    }
+
+    NotificationCompat.Action notificationAction(int action) {
+        NotificationCompat.Action notificationAction = notificationActions[action];
+        if (notificationAction == null) {
+            notificationAction = new NotificationCompat.Action(
+                    NOTIFICATION_ACTION_ICONS[action],
+                    NOTIFICATION_ACTION_TITLES[action],
+                    MediaButtonReceiver.buildMediaButtonPendingIntent(service, MEDIA_BUTTON_ACTIONS[action])
+            );
+            notificationActions[action] = notificationAction;
+        }
+        return notificationAction;
+    }
+
+    NotificationCompat.Builder notificationSkeleton(int visibleActions) {
+        NotificationCompat.Builder skeleton = notificationSkeletons[visibleActions];
+        if (skeleton == null) {
+            MediaStyle style = new MediaStyle()
+                    .setMediaSession(mediaSession.getSessionToken())
+                    .setShowActionsInCompactView(MediaSessionActions.compactViewIndices(visibleActions));
+            skeleton = new NotificationCompat.Builder(service, "playback")
+                    .setStyle(style)
+                    .setSmallIcon(android.R.drawable.ic_media_play)
+                    .setContentIntent(contentIntent)
+                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+            for (int action : MediaSessionActions.notificationActions(visibleActions)) {
+                skeleton.addAction(notificationAction(action));
+            }
+            notificationSkeletons[visibleActions] = skeleton;
+        }
+        return skeleton;
+    }
+
+    void apply() {
+        applyPosted.set(false);
+        if (applyScheduled.compareAndSet(true, false)) {
+            handler.removeCallbacks(scheduledApply);
+        }
+        // Sessions created after the service connected are attached on their first update
+        if (mediaSession == null && !service.attach(this)) {
+            return;
+        }
+        Trace.beginSection("ManagedSession.apply");
+        final long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            applyState();
+        } finally {
+            MediaSessionStats.time(MediaSessionStats.APPLY, SystemClock.elapsedRealtimeNanos() - start);
+            Trace.endSection();
+        }
+    }
+
+    private void applyState() {
+        final List<MediaSessionCompat.QueueItem> nextQueue = queue.get();
+        if (nextQueue != appliedQueue) {
+            mediaSession.setQueue(nextQueue);
+            appliedQueue = nextQueue;
+            MediaSessionStats.count(MediaSessionStats.QUEUE_PUBLISHES);
+        }
+
+        final SessionState next = state.get();
+        final SessionState previous = appliedState;
+        if (next == previous) {
+            return;
+        }
+
+        final int visibleActions = MediaSessionActions.visibleMask(next.actionMask, next.playbackState);
+        boolean possibleActionsUpdate = previous == null || visibleActions != appliedVisibleActions;
+        boolean playbackStateUpdate = possibleActionsUpdate
+                || next.playbackState != previous.playbackState
+                || next.playbackSpeed != previous.playbackSpeed
+                || next.activeQueueItemId != previous.activeQueueItemId;
+        boolean mediaMetadataUpdate = previous == null || !next.hasSameMetadata(previous);
+        boolean notificationUpdate = mediaMetadataUpdate;
+
+        if (!playbackStateUpdate && (next.position != previous.position || next.positionUpdateTime != previous.positionUpdateTime)) {
+            playbackStateUpdate = Math.abs(next.position - clock.position(next.positionUpdateTime)) > service.getPositionDriftThreshold();
+        }
+
+        if (possibleActionsUpdate) {
+            notificationBuilder = notificationSkeleton(visibleActions);
+            playbackStateBuilder.setActions(MediaSessionActions.playbackStateActions(visibleActions));
+            appliedVisibleActions = visibleActions;
+            notificationUpdate = true;
+        }
+
+        if (playbackStateUpdate) {
+            playbackStateBuilder.setState(next.playbackState, next.position, next.playbackSpeed, next.positionUpdateTime)
+                    .setActiveQueueItemId(next.activeQueueItemId);
+            final long publishStart = SystemClock.elapsedRealtimeNanos();
+            mediaSession.setPlaybackState(playbackStateBuilder.build());
+            MediaSessionStats.time(MediaSessionStats.PLAYBACK_STATE_PUBLISH, SystemClock.elapsedRealtimeNanos() - publishStart);
+            MediaSessionStats.count(MediaSessionStats.PLAYBACK_STATE_PUBLISHES);
+            clock.set(next.position, next.positionUpdateTime, next.playbackSpeed,
+                    next.playbackState == PlaybackStateCompat.STATE_PLAYING, next.duration);
+        }
+
+        if (mediaMetadataUpdate) {
+            mediaMetadataBuilder
+                    .putString(MediaMetadataCompat.METADATA_KEY_TITLE, next.title)
+                    .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, next.artist)
+                    .putString(MediaMetadataCompat.METADATA_KEY_ALBUM, next.album)
+                    .putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, next.artwork)
+                    .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, next.duration);
+            final long publishStart = SystemClock.elapsedRealtimeNanos();
+            mediaSession.setMetadata(mediaMetadataBuilder.build());
+            MediaSessionStats.time(MediaSessionStats.METADATA_PUBLISH, SystemClock.elapsedRealtimeNanos() - publishStart);
+            MediaSessionStats.count(MediaSessionStats.METADATA_PUBLISHES);
+            if (next.artwork != null) {
+                MediaSessionStats.add(MediaSessionStats.ARTWORK_BYTES_PARCELLED, next.artwork.getAllocationByteCount());
+            }
+        }
+
+        appliedState = next;
+        if (playbackStateUpdate) {
+            service.updateForeground(this);
+        }
+        if (playbackStateUpdate || mediaMetadataUpdate) {
+            service.saveSnapshot(this, next, clock.position(SystemClock.elapsedRealtime()));
+        }
+        syncNotification(notificationUpdate);
+    }
+
+    // Only the foreground session keeps a notification while it has nothing to play
+    private void syncNotification(boolean changed) {
+        final SessionState current = appliedState;
+        final boolean visible = service.ownsForeground(this)
+                || current != null && current.playbackState != PlaybackStateCompat.STATE_NONE;
+        if (!visible) {
+            if (notificationShown) {
+                notificationScheduler.cancel();
+                notificationManager.cancel(notificationId);
+                notificationShown = false;
+            }
+        } else if (changed || !notificationShown) {
+            notificationShown = true;
+            notificationScheduler.invalidate();
+        }
+    }
+
+    void onForegroundChanged() {
+        if (mediaSession != null) {
+            syncNotification(false);
+        }
+    }
+
+    Notification foregroundNotification() {
+        notificationShown = true;
+        notificationScheduler.cancel();
+        return buildNotification();
+    }
+
+    private Notification buildNotification() {
+        final SessionState current = appliedState;
+        if (current == null) {
+            return notificationBuilder.build();
+        }
+        // From Android 13 media notifications take their artwork from the session metadata
+        final Bitmap largeIcon = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU ? null : current.artwork;
+        if (largeIcon != null) {
+            MediaSessionStats.add(MediaSessionStats.ARTWORK_BYTES_PARCELLED, largeIcon.getAllocationByteCount());
+        }
+        return notificationBuilder
+                .setContentTitle(current.title)
+                .setContentText(current.artist + " - " + current.album)
+                .setLargeIcon(largeIcon)
+                .build();
+    }
+
+    public void flushNotification() {
+        if (notificationScheduler != null) {
+            notificationScheduler.flush();
+        }
+    }
+}
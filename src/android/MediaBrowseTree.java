@@ -0,0 +1,197 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.v4.media.MediaBrowserCompat;
+import android.support.v4.media.MediaDescriptionCompat;
+import android.util.Log;
+import android.util.LruCache;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MediaBrowseTree {
+    private static final String TAG = "MediaBrowseTree";
+    private static final String DIRECTORY = "media-browse-tree";
+    private static final String NODE_SUFFIX = ".jsonl";
+    private static final int MAX_CACHED_ITEMS = 1000;
+    static final String ROOT_ID = "root";
+
+    interface Listener {
+        void onChildrenChanged(String parentId);
+    }
+
+    private static MediaBrowseTree instance;
+
+    static synchronized MediaBrowseTree getInstance(Context context) {
+        if (instance == null) {
+            instance = new MediaBrowseTree(new File(context.getApplicationContext().getFilesDir(), DIRECTORY));
+        }
+        return instance;
+    }
+
+    private final File directory;
+    private final AtomicInteger version = new AtomicInteger();
+    private final LruCache<String, List<MediaBrowserCompat.MediaItem>> pages =
+            new LruCache<String, List<MediaBrowserCompat.MediaItem>>(MAX_CACHED_ITEMS) {
+                @Override
+                protected int sizeOf(String key, List<MediaBrowserCompat.MediaItem> page) {
+                    return Math.max(1, page.size());
+                }
+            };
+    private volatile Listener listener;
+
+    private MediaBrowseTree(File directory) {
+        this.directory = directory;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public List<MediaBrowserCompat.MediaItem> getChildren(String parentId, int page, int pageSize) {
+        final String pageKey = parentId + '\n' + page + '\n' + pageSize;
+        List<MediaBrowserCompat.MediaItem> cached = pages.get(pageKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        final int readVersion = version.get();
+        List<MediaBrowserCompat.MediaItem> items;
+        try {
+            items = readNode(parentId, page, pageSize);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Error reading children of " + parentId, e);
+            return null;
+        }
+        if (version.get() == readVersion) {
+            pages.put(pageKey, items);
+        }
+        return items;
+    }
+
+    public void putChildren(JSONObject nodes) throws IOException, JSONException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create browse tree directory");
+        }
+        Iterator<String> parentIds = nodes.keys();
+        while (parentIds.hasNext()) {
+            String parentId = parentIds.next();
+            writeNode(parentId, nodes.getJSONArray(parentId));
+            invalidate(parentId);
+        }
+    }
+
+    // Pages are read back from disk on the next request
+    void trimMemory() {
+        pages.evictAll();
+    }
+
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        version.incrementAndGet();
+        pages.evictAll();
+        notifyChildrenChanged(ROOT_ID);
+    }
+
+    private void invalidate(String parentId) {
+        version.incrementAndGet();
+        final String prefix = parentId + '\n';
+        for (String pageKey : pages.snapshot().keySet()) {
+            if (pageKey.startsWith(prefix)) {
+                pages.remove(pageKey);
+            }
+        }
+        notifyChildrenChanged(parentId);
+    }
+
+    private void notifyChildrenChanged(String parentId) {
+        Listener listener = this.listener;
+        if (listener != null) {
+            listener.onChildrenChanged(parentId);
+        }
+    }
+
+    private File nodeFile(String parentId) {
+        return new File(directory, ArtworkCache.key(parentId) + NODE_SUFFIX);
+    }
+
+    private void writeNode(String parentId, JSONArray items) throws IOException, JSONException {
+        File temp = File.createTempFile("node", ".tmp", directory);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < items.length(); i++) {
+                out.write(items.getJSONObject(i).toString());
+                out.write('\n');
+            }
+        } catch (IOException | JSONException e) {
+            temp.delete();
+            throw e;
+        }
+        synchronized (this) {
+            if (!temp.renameTo(nodeFile(parentId))) {
+                temp.delete();
+                throw new IOException("Cannot store browse tree node " + parentId);
+            }
+        }
+    }
+
+    private List<MediaBrowserCompat.MediaItem> readNode(String parentId, int page, int pageSize) throws IOException, JSONException {
+        final int skip = pageSize > 0 ? page * pageSize : 0;
+        final int limit = pageSize > 0 ? pageSize : Integer.MAX_VALUE;
+        List<MediaBrowserCompat.MediaItem> items = new ArrayList<>(Math.min(limit, 64));
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(nodeFile(parentId)), StandardCharsets.UTF_8))) {
+            String line;
+            int index = 0;
+            while (items.size() < limit && (line = in.readLine()) != null) {
+                if (index++ >= skip) {
+                    items.add(toMediaItem(new JSONObject(line)));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        }
+        return items;
+    }
+
+    private static MediaBrowserCompat.MediaItem toMediaItem(JSONObject item) throws JSONException {
+        MediaDescriptionCompat.Builder description = new MediaDescriptionCompat.Builder()
+                .setMediaId(item.getString("id"))
+                .setTitle(item.optString("title", ""))
+                .setSubtitle(item.optString("subtitle", ""));
+        String artworkSrc = item.optString("artwork", "");
+        if (!artworkSrc.isEmpty() && !artworkSrc.startsWith("data:") && !artworkSrc.startsWith("blob:")) {
+            description.setIconUri(Uri.parse(artworkSrc));
+        }
+        final boolean browsable = item.optBoolean("browsable", false);
+        int flags = 0;
+        if (browsable) {
+            flags |= MediaBrowserCompat.MediaItem.FLAG_BROWSABLE;
+        }
+        if (item.optBoolean("playable", !browsable)) {
+            flags |= MediaBrowserCompat.MediaItem.FLAG_PLAYABLE;
+        }
+        return new MediaBrowserCompat.MediaItem(description.build(), flags);
+    }
+}
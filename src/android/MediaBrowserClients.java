@@ -0,0 +1,75 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.core.app.NotificationManagerCompat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+// Decides which media browsers may connect to the service, along the lines of UAMP's PackageValidator.
+// The app itself, the system and known media controllers are let in, everyone else is turned away
+class MediaBrowserClients {
+    private static final String TAG = "MediaBrowserClients";
+
+    // Controllers that browse media apps. They are only trusted when they ship with the system image,
+    // so an app installed under one of these names is not
+    private static final Set<String> KNOWN_CONTROLLERS = new HashSet<>(Arrays.asList(
+            "com.android.systemui",
+            "com.android.bluetooth",
+            "com.android.car.media",
+            "com.google.android.projection.gearhead",
+            "com.google.android.wearable.app",
+            "com.google.android.googlequicksearchbox",
+            "com.google.android.carassistant"
+    ));
+
+    private final Context context;
+
+    MediaBrowserClients(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    boolean isAllowed(String packageName, int uid) {
+        if (uid == Process.myUid() || uid == Process.SYSTEM_UID) {
+            return true;
+        }
+        if (check(packageName, uid)) {
+            return true;
+        }
+        Log.i(TAG, "Media browser " + packageName + " is not allowed to connect");
+        return false;
+    }
+
+    private boolean check(String packageName, int uid) {
+        final PackageManager packageManager = context.getPackageManager();
+        final String[] packages = packageManager.getPackagesForUid(uid);
+        if (packages == null || !Arrays.asList(packages).contains(packageName)) {
+            return false;
+        }
+        // Signed with the platform key, or granted the permission reserved for system media controllers
+        if (packageManager.checkSignatures("android", packageName) == PackageManager.SIGNATURE_MATCH
+                || packageManager.checkPermission(Manifest.permission.MEDIA_CONTENT_CONTROL, packageName) == PackageManager.PERMISSION_GRANTED) {
+            return true;
+        }
+        // Notification listeners the user enabled can already control every session
+        if (NotificationManagerCompat.getEnabledListenerPackages(context).contains(packageName)) {
+            return true;
+        }
+        if (!KNOWN_CONTROLLERS.contains(packageName)) {
+            return false;
+        }
+        try {
+            ApplicationInfo info = packageManager.getApplicationInfo(packageName, 0);
+            return (info.flags & (ApplicationInfo.FLAG_SYSTEM | ApplicationInfo.FLAG_UPDATED_SYSTEM_APP)) != 0;
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+    }
+}
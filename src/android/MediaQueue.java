@@ -0,0 +1,131 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.net.Uri;
+import android.support.v4.media.MediaDescriptionCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+class MediaQueue {
+    private static class Item {
+        final long id;
+        final String title;
+        final String artist;
+        final String album;
+        final String artworkSrc;
+        private MediaSessionCompat.QueueItem queueItem;
+
+        Item(long id, String title, String artist, String album, String artworkSrc) {
+            this.id = id;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+            this.artworkSrc = artworkSrc;
+        }
+
+        MediaSessionCompat.QueueItem toQueueItem() {
+            if (queueItem == null) {
+                MediaDescriptionCompat.Builder description = new MediaDescriptionCompat.Builder()
+                        .setMediaId(Long.toString(id))
+                        .setTitle(title)
+                        .setSubtitle(artist)
+                        .setDescription(album);
+                if (!artworkSrc.isEmpty() && !artworkSrc.startsWith("data:") && !artworkSrc.startsWith("blob:")) {
+                    description.setIconUri(Uri.parse(artworkSrc));
+                }
+                queueItem = new MediaSessionCompat.QueueItem(description.build(), id);
+            }
+            return queueItem;
+        }
+    }
+
+    private final List<Item> items = new ArrayList<>();
+    private long activeId = MediaSessionCompat.QueueItem.UNKNOWN_ID;
+
+    public synchronized void setItems(JSONArray array) throws JSONException {
+        items.clear();
+        items.addAll(parseItems(array));
+    }
+
+    public synchronized void applyOperations(JSONArray operations) throws JSONException {
+        for (int i = 0; i < operations.length(); i++) {
+            JSONObject operation = operations.getJSONObject(i);
+            String type = operation.getString("type");
+            switch (type) {
+                case "insert":
+                    items.addAll(clampIndex(operation.getInt("index")), parseItems(operation.getJSONArray("items")));
+                    break;
+                case "remove": {
+                    int from = clampIndex(operation.getInt("index"));
+                    int to = clampIndex(from + operation.optInt("count", 1));
+                    items.subList(from, to).clear();
+                    break;
+                }
+                case "move": {
+                    int from = clampIndex(operation.getInt("from"));
+                    int to = clampIndex(from + operation.optInt("count", 1));
+                    List<Item> range = items.subList(from, to);
+                    List<Item> moved = new ArrayList<>(range);
+                    range.clear();
+                    items.addAll(clampIndex(operation.getInt("to")), moved);
+                    break;
+                }
+                default:
+                    throw new JSONException("Unknown queue operation " + type);
+            }
+        }
+    }
+
+    public synchronized void setActiveId(long activeId) {
+        this.activeId = activeId;
+    }
+
+    public synchronized long getActiveId() {
+        return activeId;
+    }
+
+    public synchronized List<MediaSessionCompat.QueueItem> window(int size) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int activeIndex = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).id == activeId) {
+                activeIndex = i;
+                break;
+            }
+        }
+        int from = Math.max(0, Math.min(activeIndex - size / 2, items.size() - size));
+        int to = Math.min(items.size(), from + size);
+        List<MediaSessionCompat.QueueItem> window = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            window.add(items.get(i).toQueueItem());
+        }
+        return window;
+    }
+
+    private int clampIndex(int index) {
+        return Math.max(0, Math.min(index, items.size()));
+    }
+
+    private static List<Item> parseItems(JSONArray array) throws JSONException {
+        List<Item> parsed = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject item = array.getJSONObject(i);
+            String artworkSrc = "";
+            JSONArray artwork = item.optJSONArray("artwork");
+            if (artwork != null && artwork.length() > 0) {
+                artworkSrc = artwork.getJSONObject(0).optString("src");
+            }
+            parsed.add(new Item(item.getLong("id"), item.optString("title", ""), item.optString("artist", ""),
+                    item.optString("album", ""), artworkSrc));
+        }
+        return parsed;
+    }
+}
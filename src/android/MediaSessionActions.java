@@ -0,0 +1,101 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.support.v4.media.session.PlaybackStateCompat;
+
+final class MediaSessionActions {
+    static final int PREVIOUS_TRACK = 0;
+    static final int SEEK_BACKWARD = 1;
+    static final int PLAY = 2;
+    static final int PAUSE = 3;
+    static final int SEEK_FORWARD = 4;
+    static final int NEXT_TRACK = 5;
+    static final int SEEK_TO = 6;
+    static final int STOP = 7;
+    static final int SKIP_TO_QUEUE_ITEM = 8;
+    static final int PLAY_FROM_MEDIA_ID = 9;
+
+    // Must stay in sync with ACTIONS in www/MediaSession.js
+    static final String[] NAMES = {"previoustrack", "seekbackward", "play", "pause", "seekforward", "nexttrack", "seekto", "stop", "skiptoqueueitem", "playfrommediaid"};
+
+    private static final long[] PLAYBACK_STATE_ACTIONS = {
+            PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS,
+            PlaybackStateCompat.ACTION_REWIND,
+            PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_PLAY,
+            PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_PAUSE,
+            PlaybackStateCompat.ACTION_FAST_FORWARD,
+            PlaybackStateCompat.ACTION_SKIP_TO_NEXT,
+            PlaybackStateCompat.ACTION_SEEK_TO,
+            PlaybackStateCompat.ACTION_STOP,
+            PlaybackStateCompat.ACTION_SKIP_TO_QUEUE_ITEM,
+            PlaybackStateCompat.ACTION_PLAY_FROM_MEDIA_ID
+    };
+    private static final int NOTIFICATION_ACTIONS = (1 << PREVIOUS_TRACK) | (1 << SEEK_BACKWARD) | (1 << PLAY) | (1 << PAUSE)
+            | (1 << SEEK_FORWARD) | (1 << NEXT_TRACK) | (1 << STOP);
+    private static final int COMPACT_VIEW_ACTIONS = (1 << PREVIOUS_TRACK) | (1 << PLAY) | (1 << PAUSE) | (1 << NEXT_TRACK) | (1 << STOP);
+    private static final int MAX_COMPACT_VIEW_ACTIONS = 3;
+
+    static final int MASK_COUNT = 1 << NAMES.length;
+    private static final long[] playbackStateActionTable = new long[MASK_COUNT];
+    private static final int[][] notificationActionTable = new int[MASK_COUNT][];
+    private static final int[][] compactViewIndexTable = new int[MASK_COUNT][];
+
+    static {
+        for (int mask = 0; mask < MASK_COUNT; mask++) {
+            long playbackStateActions = 0;
+            int[] notificationActions = new int[Integer.bitCount(mask & NOTIFICATION_ACTIONS)];
+            int[] compactViewIndices = new int[Math.min(MAX_COMPACT_VIEW_ACTIONS, Integer.bitCount(mask & NOTIFICATION_ACTIONS & COMPACT_VIEW_ACTIONS))];
+            int notificationIndex = 0;
+            int compactViewIndex = 0;
+            for (int action = 0; action < NAMES.length; action++) {
+                if ((mask & (1 << action)) == 0) {
+                    continue;
+                }
+                playbackStateActions |= PLAYBACK_STATE_ACTIONS[action];
+                if ((NOTIFICATION_ACTIONS & (1 << action)) != 0) {
+                    if ((COMPACT_VIEW_ACTIONS & (1 << action)) != 0 && compactViewIndex < compactViewIndices.length) {
+                        compactViewIndices[compactViewIndex++] = notificationIndex;
+                    }
+                    notificationActions[notificationIndex++] = action;
+                }
+            }
+            playbackStateActionTable[mask] = playbackStateActions;
+            notificationActionTable[mask] = notificationActions;
+            compactViewIndexTable[mask] = compactViewIndices;
+        }
+    }
+
+    private MediaSessionActions() {
+    }
+
+    static int idOf(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int visibleMask(int handlerMask, int playbackState) {
+        int mask = handlerMask & (MASK_COUNT - 1);
+        if (playbackState != PlaybackStateCompat.STATE_PAUSED) {
+            mask &= ~(1 << PLAY);
+        }
+        if (playbackState != PlaybackStateCompat.STATE_PLAYING) {
+            mask &= ~(1 << PAUSE);
+        }
+        return mask;
+    }
+
+    static long playbackStateActions(int visibleMask) {
+        return playbackStateActionTable[visibleMask];
+    }
+
+    static int[] notificationActions(int visibleMask) {
+        return notificationActionTable[visibleMask];
+    }
+
+    static int[] compactViewIndices(int visibleMask) {
+        return compactViewIndexTable[visibleMask];
+    }
+}
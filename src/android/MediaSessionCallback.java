@@ -1,59 +1,81 @@
 package io.github.marcellov7.cordova.mediasessionplugin;
 
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.media.session.MediaSessionCompat;
-import org.json.JSONObject;
 
 public class MediaSessionCallback extends MediaSessionCompat.Callback {
     private static final String TAG = "MediaSessionCallback";
-    private final MediaSessionPlugin plugin;
+    private static final long SEEK_DISPATCH_WINDOW_MS = 16;
 
-    MediaSessionCallback(MediaSessionPlugin plugin) {
-        this.plugin = plugin;
+    private final ManagedSession session;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private long pendingSeekPosition = 0;
+    private boolean seekPending = false;
+    private final Runnable dispatchSeek = this::dispatchSeek;
+
+    MediaSessionCallback(ManagedSession session) {
+        this.session = session;
     }
 
     @Override
     public void onPlay() {
-        plugin.actionCallback("play");
+        session.dispatchAction(MediaSessionActions.PLAY);
     }
 
     @Override
     public void onPause() {
-        plugin.actionCallback("pause");
+        session.dispatchAction(MediaSessionActions.PAUSE);
     }
 
     @Override
     public void onSeekTo(long pos) {
-        JSONObject data = new JSONObject();
-        try {
-            data.put("seekTime", (double) pos/1000.0);
-        } catch (Exception e) {
-            // Ignore
+        session.seekTo(pos);
+        pendingSeekPosition = pos;
+        if (!seekPending) {
+            seekPending = true;
+            handler.postDelayed(dispatchSeek, SEEK_DISPATCH_WINDOW_MS);
         }
-        plugin.actionCallback("seekto", data);
+    }
+
+    private void dispatchSeek() {
+        seekPending = false;
+        session.dispatchAction(MediaSessionActions.SEEK_TO, (double) pendingSeekPosition / 1000.0);
     }
 
     @Override
     public void onRewind() {
-        plugin.actionCallback("seekbackward");
+        session.dispatchAction(MediaSessionActions.SEEK_BACKWARD);
     }
 
     @Override
     public void onFastForward() {
-        plugin.actionCallback("seekforward");
+        session.dispatchAction(MediaSessionActions.SEEK_FORWARD);
     }
 
     @Override
     public void onSkipToPrevious() {
-        plugin.actionCallback("previoustrack");
+        session.dispatchAction(MediaSessionActions.PREVIOUS_TRACK);
     }
 
     @Override
     public void onSkipToNext() {
-        plugin.actionCallback("nexttrack");
+        session.dispatchAction(MediaSessionActions.NEXT_TRACK);
     }
 
     @Override
     public void onStop() {
-        plugin.actionCallback("stop");
+        session.dispatchAction(MediaSessionActions.STOP);
+    }
+
+    @Override
+    public void onSkipToQueueItem(long id) {
+        session.dispatchAction(MediaSessionActions.SKIP_TO_QUEUE_ITEM, (double) id);
+    }
+
+    @Override
+    public void onPlayFromMediaId(String mediaId, Bundle extras) {
+        session.dispatchAction(MediaSessionActions.PLAY_FROM_MEDIA_ID, mediaId);
     }
-}
\ No newline at end of file
+}
@@ -1,57 +1,82 @@
 package io.github.marcellov7.cordova.mediasessionplugin;
 
+import android.content.ComponentCallbacks2;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.IBinder;
-import android.support.v4.media.session.PlaybackStateCompat;
-import android.util.Base64;
+import android.os.SystemClock;
 import android.util.Log;
 
 import org.apache.cordova.CordovaPlugin;
 import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaArgs;
 import org.apache.cordova.PluginResult;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MediaSessionPlugin extends CordovaPlugin {
     private static final String TAG = "MediaSessionPlugin";
+    private static final int MEDIA_ARTWORK_SIZE_DP = 320;
 
     private boolean startServiceOnlyDuringPlayback = true;
-
-    private String title = "";
-    private String artist = "";
-    private String album = "";
-    private Bitmap artwork = null;
-    private String playbackState = "none";
-    private double duration = 0.0;
-    private double position = 0.0;
-    private double playbackRate = 1.0;
-    private final Map<String, CallbackContext> actionHandlers = new HashMap<>();
-
-    private MediaSessionService service = null;
+    private long positionDriftThreshold = 500;
+    private long standbyTimeout = 60000;
+    private int queueWindowSize = 50;
+    private volatile long serviceRequestTime = 0;
+
+    private final Map<String, PluginSession> sessions = new ConcurrentHashMap<>();
+    // Sessions released while unbound, dropped from a service kept in standby before it reattaches them
+    private final Set<String> releasedSessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile MediaSessionService service = null;
+    private ArtworkLoader artworkLoader;
+    private BitmapPool bitmapPool;
 
     private final ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
         public void onServiceConnected(ComponentName componentName, IBinder iBinder) {
             MediaSessionService.LocalBinder binder = (MediaSessionService.LocalBinder) iBinder;
-            service = binder.getService();
+            MediaSessionService service = binder.getService();
+            MediaSessionPlugin.this.service = service;
             Intent intent = new Intent(cordova.getActivity(), cordova.getActivity().getClass());
-            service.connectAndInitialize(MediaSessionPlugin.this, intent);
-            updateServiceMetadata();
-            updateServicePlaybackState();
-            updateServicePositionState();
+            service.setPositionDriftThreshold(positionDriftThreshold);
+            service.setStandbyTimeout(standbyTimeout);
+            for (String id : releasedSessions) {
+                service.releaseSession(id);
+            }
+            releasedSessions.clear();
+            // Sessions kept warm or restored by the service buffer the actions replayed below until JS registers
+            for (String id : service.getSessionIds()) {
+                session(id);
+            }
+            // Sessions created before the bind get their service side here, connectAndInitialize attaches them
+            for (String id : sessions.keySet()) {
+                service.session(id);
+            }
+            boolean warm = service.connectAndInitialize(MediaSessionPlugin.this, intent);
+            // A warm bind finds the sessions still attached, a cold one also pays for creating them
+            MediaSessionStats.time(warm ? MediaSessionStats.SERVICE_BIND_WARM : MediaSessionStats.SERVICE_BIND_COLD,
+                    SystemClock.elapsedRealtimeNanos() - serviceRequestTime);
+            MediaSessionStats.count(warm ? MediaSessionStats.WARM_STARTS : MediaSessionStats.COLD_STARTS);
+            for (PluginSession session : sessions.values()) {
+                if (session.hasState()) {
+                    session.markDirty(PluginSession.DIRTY_ALL);
+                    flush(session, service);
+                }
+            }
         }
 
         @Override
@@ -60,25 +85,63 @@ public class MediaSessionPlugin extends CordovaPlugin {
         }
     };
 
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration configuration) {
+        }
+    };
+
     @Override
     protected void pluginInitialize() {
         super.pluginInitialize();
 
+        positionDriftThreshold = preferences.getInteger("positionDriftThreshold", (int) positionDriftThreshold);
+        standbyTimeout = preferences.getInteger("sessionStandbyTimeout", (int) standbyTimeout);
+        queueWindowSize = Math.max(1, preferences.getInteger("queueWindowSize", queueWindowSize));
+
+        final int defaultMemoryCacheSize = (int) Math.min(Runtime.getRuntime().maxMemory() / 16, 16 * 1024 * 1024);
+        final int memoryCacheSize = preferences.getInteger("artworkMemoryCacheSize", defaultMemoryCacheSize);
+        final int diskCacheSize = preferences.getInteger("artworkDiskCacheSize", 20 * 1024 * 1024);
+        final Resources resources = cordova.getActivity().getResources();
+        final int largeIconSize = Math.max(
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width),
+                resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height));
+        final int defaultArtworkSize = Math.max(largeIconSize, Math.round(MEDIA_ARTWORK_SIZE_DP * resources.getDisplayMetrics().density));
+        final int artworkMaxSize = preferences.getInteger("artworkMaxSize", defaultArtworkSize);
+        final String artworkBitmapConfig = preferences.getString("artworkBitmapConfig", "ARGB_8888");
+        bitmapPool = new BitmapPool(memoryCacheSize / 4);
+        artworkLoader = new ArtworkLoader(
+                new ArtworkCache(cordova.getActivity().getCacheDir(), memoryCacheSize, diskCacheSize, bitmapPool),
+                new ArtworkDecoder(artworkMaxSize, artworkBitmapConfig, bitmapPool),
+                webView.getResourceApi());
+        cordova.getActivity().registerComponentCallbacks(memoryCallbacks);
+
         final String foregroundServiceConfig = preferences.getString("foregroundService", "");
         if (foregroundServiceConfig.equals("always")) {
             startServiceOnlyDuringPlayback = false;
         }
 
-        if (!startServiceOnlyDuringPlayback) {
+        if (!startServiceOnlyDuringPlayback || MediaSessionService.isAwaitingPlugin()) {
             startMediaService();
         }
     }
 
+    // CordovaArgs decodes ArrayBuffer arguments, which cordova-android still sends across the bridge as base64
     @Override
-    public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
+    public boolean execute(String action, CordovaArgs args, CallbackContext callbackContext) throws JSONException {
         switch (action) {
             case "setMetadata":
-                this.setMetadata(args.getJSONObject(0), callbackContext);
+                this.setMetadata(args.getJSONObject(0), args.isNull(1) ? null : args.getArrayBuffer(1), callbackContext);
                 return true;
             case "setPlaybackState":
                 this.setPlaybackState(args.getJSONObject(0), callbackContext);
@@ -86,162 +149,448 @@ public class MediaSessionPlugin extends CordovaPlugin {
             case "setActionHandler":
                 this.setActionHandler(args.getJSONObject(0), callbackContext);
                 return true;
+            case "registerEventChannel":
+                this.registerEventChannel(args.optJSONObject(0), callbackContext);
+                return true;
             case "setPositionState":
                 this.setPositionState(args.getJSONObject(0), callbackContext);
                 return true;
+            case "getPosition":
+                this.getPosition(args.optJSONObject(0), callbackContext);
+                return true;
+            case "updateSession":
+                this.updateSession(args.getJSONObject(0), args.isNull(1) ? null : args.getArrayBuffer(1), callbackContext);
+                return true;
+            case "prefetchArtwork":
+                this.prefetchArtwork(args.getJSONArray(0), callbackContext);
+                return true;
+            case "clearArtworkCache":
+                this.clearArtworkCache(callbackContext);
+                return true;
+            case "getArtworkCacheStats":
+                callbackContext.success(artworkLoader.getCache().getStats());
+                return true;
+            case "getStats":
+                JSONObject stats = MediaSessionStats.snapshot();
+                stats.put("artworkCache", artworkLoader.getCache().getStats());
+                callbackContext.success(stats);
+                return true;
+            case "setQueue":
+                this.setQueue(args.getJSONObject(0), callbackContext);
+                return true;
+            case "updateQueue":
+                this.updateQueue(args.getJSONObject(0), callbackContext);
+                return true;
+            case "setActiveQueueItem":
+                this.setActiveQueueItem(args.getJSONObject(0), callbackContext);
+                return true;
+            case "setBrowseTree":
+                this.setBrowseTree(args.getJSONObject(0), callbackContext);
+                return true;
+            case "clearBrowseTree":
+                this.clearBrowseTree(callbackContext);
+                return true;
+            case "releaseSession":
+                this.releaseSession(args.getJSONObject(0), callbackContext);
+                return true;
         }
         return false;
     }
 
-    private void startMediaService() {
-        Intent intent = new Intent(cordova.getActivity(), MediaSessionService.class);
-        cordova.getActivity().startService(intent);
-        cordova.getActivity().bindService(intent, serviceConnection, Context.BIND_AUTO_CREATE);
+    private PluginSession session(String id) {
+        PluginSession session = sessions.get(id);
+        if (session == null) {
+            synchronized (sessions) {
+                session = sessions.get(id);
+                if (session == null) {
+                    session = new PluginSession(id, artworkLoader.newTarget());
+                    sessions.put(id, session);
+                    // The service side is created along with the session, later flushes only look it up
+                    MediaSessionService service = this.service;
+                    if (service != null) {
+                        service.session(id);
+                    }
+                }
+            }
+        }
+        return session;
     }
 
-    private void updateServiceMetadata() {
-        service.setTitle(title);
-        service.setArtist(artist);
-        service.setAlbum(album);
-        service.setArtwork(artwork);
-        service.update();
+    private PluginSession session(JSONObject options) {
+        return session(sessionId(options));
     }
 
-    private Bitmap urlToBitmap(String url) throws IOException {
-        final boolean blobUrl = url.startsWith("blob:");
-        if (blobUrl) {
-            Log.i(TAG, "Converting Blob URLs to Bitmap for media artwork is not yet supported");
-        }
+    private static String sessionId(JSONObject options) {
+        return options != null ? options.optString("sessionId", ManagedSession.DEFAULT_ID) : ManagedSession.DEFAULT_ID;
+    }
 
-        final boolean httpUrl = url.startsWith("http");
-        if (httpUrl) {
-            HttpURLConnection connection = (HttpURLConnection) (new URL(url)).openConnection();
-            connection.setDoInput(true);
-            connection.connect();
-            InputStream inputStream = connection.getInputStream();
-            return BitmapFactory.decodeStream(inputStream);
+    // Pushes only the sections that changed since the last flush, sessions nobody touched are never rebuilt
+    private void flush(PluginSession session, MediaSessionService service) {
+        final int dirty = session.takeDirty();
+        if (dirty == 0) {
+            return;
+        }
+        // A session released in the meantime is not brought back
+        ManagedSession target = service.findSession(session.id);
+        if (target == null) {
+            return;
+        }
+        if ((dirty & PluginSession.DIRTY_METADATA) != 0) {
+            applyServiceMetadata(session, target);
         }
+        if ((dirty & PluginSession.DIRTY_PLAYBACK_STATE) != 0) {
+            target.setPlaybackState(session.getPlaybackStateCompat());
+        }
+        if ((dirty & PluginSession.DIRTY_POSITION) != 0) {
+            applyServicePositionState(session, target);
+        }
+        if ((dirty & PluginSession.DIRTY_ACTIONS) != 0) {
+            target.setActionMask(session.getActionMask());
+        }
+        if ((dirty & PluginSession.DIRTY_QUEUE) != 0) {
+            target.setQueue(session.queue.window(queueWindowSize));
+            target.setActiveQueueItemId(session.queue.getActiveId());
+        }
+        if (dirty == PluginSession.DIRTY_POSITION) {
+            target.scheduleUpdate();
+        } else {
+            target.update();
+        }
+    }
 
-        int base64Index = url.indexOf(";base64,");
-        if (base64Index != -1) {
-            String base64Data = url.substring(base64Index + 8);
-            byte[] decoded = Base64.decode(base64Data, Base64.DEFAULT);
-            return BitmapFactory.decodeByteArray(decoded, 0, decoded.length);
+    private void flush(PluginSession session) {
+        MediaSessionService service = this.service;
+        if (service != null) {
+            flush(session, service);
         }
+    }
+
+    private void startMediaService() {
+        serviceRequestTime = SystemClock.elapsedRealtimeNanos();
+        Intent intent = new Intent(cordova.getActivity(), MediaSessionService.class);
+        cordova.getActivity().startService(intent);
+        cordova.getActivity().bindService(intent, serviceConnection, Context.BIND_AUTO_CREATE);
+    }
 
-        return null;
+    private void applyServiceMetadata(PluginSession session, ManagedSession target) {
+        target.setTitle(session.title);
+        target.setArtist(session.artist);
+        target.setAlbum(session.album);
+        if (session.artwork == null && session.artworkFingerprint != 0) {
+            session.artworkTarget.load(session.artworkSrc, (src, artwork, fingerprint) -> onArtworkLoaded(session, src, artwork, fingerprint));
+        } else {
+            target.setArtwork(session.artwork, session.artworkFingerprint);
+        }
     }
 
-    private void setMetadata(JSONObject options, CallbackContext callbackContext) throws JSONException {
-        title = options.optString("title", title);
-        artist = options.optString("artist", artist);
-        album = options.optString("album", album);
+    private void readMetadata(PluginSession session, JSONObject options, byte[] artworkData) throws JSONException {
+        session.title = options.optString("title", session.title);
+        session.artist = options.optString("artist", session.artist);
+        session.album = options.optString("album", session.album);
 
         JSONArray artworkArray = options.optJSONArray("artwork");
         if (artworkArray != null && artworkArray.length() > 0) {
             JSONObject artworkObject = artworkArray.getJSONObject(0);
             String src = artworkObject.optString("src");
-            if (src != null) {
-                try {
-                    this.artwork = urlToBitmap(src);
-                } catch (IOException e) {
-                    Log.e(TAG, "Error loading artwork", e);
+            if (!src.equals(session.artworkSrc)) {
+                session.artworkSrc = src;
+                session.artwork = null;
+                session.artworkFingerprint = 0;
+                if (src.isEmpty()) {
+                    session.artworkTarget.cancel();
+                } else {
+                    session.artworkTarget.load(src, artworkData, (loadedSrc, artwork, fingerprint) -> onArtworkLoaded(session, loadedSrc, artwork, fingerprint));
                 }
+            } else if (!src.isEmpty() && session.artwork == null && !session.artworkTarget.isLoading()) {
+                // The last load failed or was dropped, setting the same artwork again retries it
+                session.artworkTarget.load(src, artworkData, (loadedSrc, artwork, fingerprint) -> onArtworkLoaded(session, loadedSrc, artwork, fingerprint));
             }
         }
+        session.markDirty(PluginSession.DIRTY_METADATA);
+    }
 
-        if (service != null) {
-            updateServiceMetadata();
+    private void setMetadata(JSONObject options, byte[] artworkData, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        readMetadata(session, options, artworkData);
+        flush(session);
+        callbackContext.success();
+    }
+
+    private void onArtworkLoaded(PluginSession session, String src, Bitmap artwork, long fingerprint) {
+        if (!src.equals(session.artworkSrc)) {
+            return;
         }
+        session.artwork = artwork;
+        session.artworkFingerprint = fingerprint;
+        bitmapPool.retain(session.id, artwork);
+        MediaSessionService service = this.service;
+        ManagedSession target = service != null ? service.findSession(session.id) : null;
+        if (target != null) {
+            target.setArtwork(artwork, fingerprint);
+            target.update();
+        }
+    }
+
+    private void prefetchArtwork(JSONArray urls, CallbackContext callbackContext) throws JSONException {
+        List<String> sources = new ArrayList<>(urls.length());
+        for (int i = 0; i < urls.length(); i++) {
+            sources.add(urls.getString(i));
+        }
+        artworkLoader.prefetch(sources);
         callbackContext.success();
     }
 
-    private void updateServicePlaybackState() {
-        if (playbackState.equals("playing")) {
-            service.setPlaybackState(PlaybackStateCompat.STATE_PLAYING);
-            service.update();
-        } else if (playbackState.equals("paused")) {
-            service.setPlaybackState(PlaybackStateCompat.STATE_PAUSED);
-            service.update();
-        } else {
-            service.setPlaybackState(PlaybackStateCompat.STATE_NONE);
-            service.update();
+    private void trimMemory(int level) {
+        final boolean critical = level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE;
+        final boolean low = critical || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        if (!low) {
+            return;
+        }
+        artworkLoader.getCache().trimMemory(critical);
+        if (critical) {
+            for (PluginSession session : sessions.values()) {
+                if (!session.artworkSrc.startsWith("blob:")) {
+                    // The session holds its own reference, ours is resolved again from the source when needed
+                    session.artwork = null;
+                }
+            }
         }
     }
 
-    private void setPlaybackState(JSONObject options, CallbackContext callbackContext) throws JSONException {
-        playbackState = options.optString("playbackState", playbackState);
+    private void clearArtworkCache(CallbackContext callbackContext) {
+        cordova.getThreadPool().execute(() -> {
+            artworkLoader.getCache().clear();
+            callbackContext.success();
+        });
+    }
 
-        final boolean playback = playbackState.equals("playing") || playbackState.equals("paused");
+    private MediaSessionService updateServiceLifecycle() {
+        boolean playback = false;
+        for (PluginSession session : sessions.values()) {
+            playback |= session.isInPlayback();
+        }
         if (startServiceOnlyDuringPlayback && service == null && playback) {
             startMediaService();
+            return null;
         } else if (startServiceOnlyDuringPlayback && service != null && !playback) {
+            // The service may stay warm in standby, so it gets the final state before it is let go
+            for (PluginSession session : sessions.values()) {
+                flush(session, service);
+            }
             cordova.getActivity().unbindService(serviceConnection);
             service = null;
-        } else if (service != null) {
-            updateServicePlaybackState();
+            return null;
+        }
+        return service;
+    }
+
+    private void readPlaybackState(PluginSession session, JSONObject options) {
+        String playbackState = options.optString("playbackState", session.playbackState);
+        if (!playbackState.equals(session.playbackState)) {
+            session.playbackState = playbackState;
+            session.markDirty(PluginSession.DIRTY_PLAYBACK_STATE);
+        }
+    }
+
+    private void setPlaybackState(JSONObject options, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        readPlaybackState(session, options);
+
+        MediaSessionService service = updateServiceLifecycle();
+        if (service != null) {
+            flush(session, service);
         }
         callbackContext.success();
     }
 
-    private void updateServicePositionState() {
-        service.setDuration(Math.round(duration * 1000));
-        service.setPosition(Math.round(position * 1000));
-        float playbackSpeed = playbackRate == 0.0 ? (float) 1.0 : (float) playbackRate;
-        service.setPlaybackSpeed(playbackSpeed);
-        service.update();
+    private void applyServicePositionState(PluginSession session, ManagedSession target) {
+        target.setDuration(Math.round(session.duration * 1000));
+        target.setPosition(Math.round(session.position * 1000));
+        float playbackSpeed = session.playbackRate == 0.0 ? (float) 1.0 : (float) session.playbackRate;
+        target.setPlaybackSpeed(playbackSpeed);
+    }
+
+    private void readPositionState(PluginSession session, JSONObject options) {
+        session.duration = options.optDouble("duration", 0.0);
+        session.position = options.optDouble("position", 0.0);
+        session.playbackRate = options.optDouble("playbackRate", 1.0);
+        session.markDirty(PluginSession.DIRTY_POSITION);
     }
 
     private void setPositionState(JSONObject options, CallbackContext callbackContext) throws JSONException {
-        duration = options.optDouble("duration", 0.0);
-        position = options.optDouble("position", 0.0);
-        playbackRate = options.optDouble("playbackRate", 1.0);
+        PluginSession session = session(options);
+        readPositionState(session, options);
+        flush(session);
+        callbackContext.success();
+    }
+
+    private void getPosition(JSONObject options, CallbackContext callbackContext) {
+        final String id = sessionId(options);
+        PluginSession session = sessions.get(id);
+        MediaSessionService service = this.service;
+        ManagedSession target = service != null ? service.findSession(id) : null;
+        double position = target != null ? target.getPosition() / 1000.0 : session != null ? session.position : 0.0;
+        callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, (float) position));
+    }
+
+    private void updateSession(JSONObject options, byte[] artworkData, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        JSONObject metadata = options.optJSONObject("metadata");
+        if (metadata != null) {
+            readMetadata(session, metadata, artworkData);
+        }
+
+        JSONObject positionState = options.optJSONObject("positionState");
+        if (positionState != null) {
+            readPositionState(session, positionState);
+        }
+
+        JSONArray actions = options.optJSONArray("actions");
+        if (actions != null) {
+            int enabled = 0;
+            for (int i = 0; i < actions.length(); i++) {
+                int action = MediaSessionActions.idOf(actions.getString(i));
+                if (action != -1) {
+                    enabled |= 1 << action;
+                }
+            }
+            session.enabledActionMask = enabled;
+            session.markDirty(PluginSession.DIRTY_ACTIONS);
+        }
 
+        readPlaybackState(session, options);
+
+        MediaSessionService service = updateServiceLifecycle();
         if (service != null) {
-            updateServicePositionState();
+            flush(session, service);
         }
         callbackContext.success();
     }
 
     private void setActionHandler(JSONObject options, CallbackContext callbackContext) throws JSONException {
         String action = options.getString("action");
-        actionHandlers.put(action, callbackContext);
-
-        if (service != null) {
-            service.updatePossibleActions();
+        int id = MediaSessionActions.idOf(action);
+        if (id == -1) {
+            callbackContext.error("Unsupported action " + action);
+            return;
         }
+        PluginSession session = session(options);
+        session.actionHandlerMask |= 1 << id;
+        session.markDirty(PluginSession.DIRTY_ACTIONS);
+        flush(session);
+        callbackContext.success();
+    }
+
+    private void publishQueue(PluginSession session) {
+        session.markDirty(PluginSession.DIRTY_QUEUE);
+        flush(session);
+    }
 
-        PluginResult pluginResult = new PluginResult(PluginResult.Status.NO_RESULT);
-        pluginResult.setKeepCallback(true);
-        callbackContext.sendPluginResult(pluginResult);
+    private void setQueue(JSONObject options, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        session.queue.setItems(options.getJSONArray("items"));
+        if (options.has("activeId")) {
+            session.queue.setActiveId(options.getLong("activeId"));
+        }
+        publishQueue(session);
+        callbackContext.success();
     }
 
-    public boolean hasActionHandler(String action) {
-        return actionHandlers.containsKey(action);
+    private void updateQueue(JSONObject options, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        session.queue.applyOperations(options.getJSONArray("operations"));
+        publishQueue(session);
+        callbackContext.success();
     }
 
-    public void actionCallback(String action) {
-        actionCallback(action, new JSONObject());
+    private void setActiveQueueItem(JSONObject options, CallbackContext callbackContext) throws JSONException {
+        PluginSession session = session(options);
+        session.queue.setActiveId(options.getLong("id"));
+        publishQueue(session);
+        callbackContext.success();
     }
 
-    public void actionCallback(String action, JSONObject data) {
-        CallbackContext callbackContext = actionHandlers.get(action);
-        if (callbackContext != null) {
+    private void setBrowseTree(JSONObject options, CallbackContext callbackContext) throws JSONException {
+        final JSONObject nodes = options.getJSONObject("nodes");
+        cordova.getThreadPool().execute(() -> {
             try {
-                data.put("action", action);
-                PluginResult result = new PluginResult(PluginResult.Status.OK, data);
-                result.setKeepCallback(true);
-                callbackContext.sendPluginResult(result);
-            } catch (JSONException e) {
-                Log.e(TAG, "Error sending action callback", e);
+                MediaBrowseTree.getInstance(cordova.getActivity()).putChildren(nodes);
+                callbackContext.success();
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Error storing browse tree", e);
+                callbackContext.error(e.getMessage());
             }
+        });
+    }
+
+    private void clearBrowseTree(CallbackContext callbackContext) {
+        cordova.getThreadPool().execute(() -> {
+            MediaBrowseTree.getInstance(cordova.getActivity()).clear();
+            callbackContext.success();
+        });
+    }
+
+    private void releaseSession(JSONObject options, CallbackContext callbackContext) {
+        final String id = options.optString("sessionId", ManagedSession.DEFAULT_ID);
+        if (id.equals(ManagedSession.DEFAULT_ID)) {
+            callbackContext.error("The default session cannot be released");
+            return;
+        }
+        PluginSession session = sessions.remove(id);
+        if (session != null) {
+            session.artworkTarget.cancel();
+            bitmapPool.release(id);
+        }
+        MediaSessionService service = this.service;
+        if (service != null) {
+            service.releaseSession(id);
         } else {
-            Log.d(TAG, "No handler for action " + action);
+            releasedSessions.add(id);
+        }
+        updateServiceLifecycle();
+        callbackContext.success();
+    }
+
+    // Sets up the channel for a session the preceding setActionHandler created,
+    // a session released in between is not brought back
+    private void registerEventChannel(JSONObject options, CallbackContext callbackContext) {
+        PluginSession session = sessions.get(sessionId(options));
+        if (session == null) {
+            callbackContext.error("The session was released");
+            return;
+        }
+        session.registerEventChannel(callbackContext);
+    }
+
+    public void actionCallback(String sessionId, int action) {
+        sendEvent(sessionId, Integer.toString(action));
+    }
+
+    public void actionCallback(String sessionId, int action, double value) {
+        sendEvent(sessionId, action + ":" + value);
+    }
+
+    public void actionCallback(String sessionId, int action, String value) {
+        sendEvent(sessionId, action + ":" + value);
+    }
+
+    // Actions racing a releaseSession are dropped instead of recreating the session
+    private void sendEvent(String sessionId, String event) {
+        PluginSession session = sessions.get(sessionId);
+        if (session != null) {
+            session.sendEvent(event);
         }
     }
 
     @Override
     public void onDestroy() {
+        cordova.getActivity().unregisterComponentCallbacks(memoryCallbacks);
+        for (PluginSession session : sessions.values()) {
+            session.artworkTarget.cancel();
+        }
+        artworkLoader.shutdown();
         if (service != null) {
             cordova.getActivity().unbindService(serviceConnection);
             service = null;
@@ -1,64 +1,64 @@
 package io.github.marcellov7.cordova.mediasessionplugin;
 
-import android.annotation.SuppressLint;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
-import android.app.Service;
 import android.content.Intent;
 import android.content.pm.ServiceInfo;
-import android.graphics.Bitmap;
 import android.os.Binder;
 import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
 import android.os.IBinder;
-import android.support.v4.media.MediaMetadataCompat;
-import android.support.v4.media.session.MediaSessionCompat;
-import android.support.v4.media.session.PlaybackStateCompat;
+import android.os.Looper;
+import android.os.Trace;
+import android.support.v4.media.MediaBrowserCompat;
 
-import androidx.core.app.NotificationCompat;
-import androidx.media.app.NotificationCompat.MediaStyle;
+import androidx.core.app.ServiceCompat;
+import androidx.media.MediaBrowserServiceCompat;
 import androidx.media.session.MediaButtonReceiver;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayDeque;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class MediaSessionService extends Service {
+public class MediaSessionService extends MediaBrowserServiceCompat {
     private static final String TAG = "MediaSessionService";
 
-    private MediaSessionCompat mediaSession;
-    private PlaybackStateCompat.Builder playbackStateBuilder;
-    private MediaMetadataCompat.Builder mediaMetadataBuilder;
-    private NotificationManager notificationManager;
-    private NotificationCompat.Builder notificationBuilder;
-    private MediaStyle notificationStyle;
-    private final Map<String, NotificationCompat.Action> notificationActions = new HashMap<>();
-    private final Map<String, Long> playbackStateActions = new HashMap<>();
-    private final String[] possibleActions = {"previoustrack", "seekbackward", "play", "pause", "seekforward", "nexttrack", "seekto", "stop"};
-    final Set<String> possibleCompactViewActions = new HashSet<>(Arrays.asList("previoustrack", "play", "pause", "nexttrack", "stop"));
     private static final int NOTIFICATION_ID = 1;
+    private static final long RESTORED_SESSION_TIMEOUT_MS = 60000;
+    private static final int MAX_PENDING_ACTIONS = 16;
 
-    private int playbackState = PlaybackStateCompat.STATE_NONE;
-    private String title = "";
-    private String artist = "";
-    private String album = "";
-    private Bitmap artwork = null;
-    private long duration = 0;
-    private long position = 0;
-    private float playbackSpeed = 1.0F;
+    // Set while a session brought back by a media button waits for the plugin to pick up its actions
+    private static volatile boolean awaitingPlugin = false;
 
-    private boolean possibleActionsUpdate = true;
-    private boolean playbackStateUpdate = false;
-    private boolean mediaMetadataUpdate = false;
-    private boolean notificationUpdate = false;
+    private final Map<String, ManagedSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextNotificationId = new AtomicInteger(NOTIFICATION_ID + 1);
+    private ManagedSession defaultSession;
+    private ManagedSession foregroundSession;
+    private boolean inForeground = false;
+    private NotificationManager notificationManager;
+    private PendingIntent contentIntent;
+    private volatile long positionDriftThreshold = 500;
 
     private MediaSessionPlugin plugin;
-    private MediaSessionCallback callback;
+    private final ArrayDeque<PendingAction> pendingActions = new ArrayDeque<>();
+    private SessionSnapshot snapshot;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable standbyExpired = this::destroy;
+    private volatile long standbyTimeout = 0;
 
     private final IBinder binder = new LocalBinder();
+    private MediaBrowseTree browseTree;
+    private MediaBrowserClients browserClients;
+    private final ExecutorService browseExecutor = Executors.newSingleThreadExecutor();
 
     public class LocalBinder extends Binder {
         MediaSessionService getService() {
@@ -66,236 +66,364 @@ public class MediaSessionService extends Service {
         }
     }
 
+    interface PendingAction {
+        void dispatch(MediaSessionPlugin plugin);
+    }
+
+    static boolean isAwaitingPlugin() {
+        return awaitingPlugin;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel("playback", "Playback", NotificationManager.IMPORTANCE_LOW);
+            notificationManager.createNotificationChannel(channel);
+        }
+        defaultSession = new ManagedSession(this, ManagedSession.DEFAULT_ID, NOTIFICATION_ID);
+        sessions.put(ManagedSession.DEFAULT_ID, defaultSession);
+        snapshot = new SessionSnapshot(getFilesDir());
+        browseTree = MediaBrowseTree.getInstance(this);
+        browseTree.setListener(this::notifyChildrenChanged);
+        browserClients = new MediaBrowserClients(this);
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
+        if (SERVICE_INTERFACE.equals(intent.getAction())) {
+            return super.onBind(intent);
+        }
         return binder;
     }
 
+    // Only callers let in get the session attached, a rejected one leaves the service as it found it
+    @Override
+    public BrowserRoot onGetRoot(String clientPackageName, int clientUid, Bundle rootHints) {
+        if (!browserClients.isAllowed(clientPackageName, clientUid)) {
+            return null;
+        }
+        if (!defaultSession.isInitialized()) {
+            setContentIntent(launchIntent());
+            attach(defaultSession);
+        }
+        return new BrowserRoot(MediaBrowseTree.ROOT_ID, null);
+    }
+
+    @Override
+    public void onLoadChildren(String parentId, Result<List<MediaBrowserCompat.MediaItem>> result) {
+        loadChildren(parentId, 0, -1, result);
+    }
+
+    @Override
+    public void onLoadChildren(String parentId, Result<List<MediaBrowserCompat.MediaItem>> result, Bundle options) {
+        loadChildren(parentId,
+                options.getInt(MediaBrowserCompat.EXTRA_PAGE, 0),
+                options.getInt(MediaBrowserCompat.EXTRA_PAGE_SIZE, -1),
+                result);
+    }
+
+    private void loadChildren(String parentId, int page, int pageSize, Result<List<MediaBrowserCompat.MediaItem>> result) {
+        result.detach();
+        browseExecutor.execute(() -> result.sendResult(browseTree.getChildren(parentId, page, pageSize)));
+    }
+
     @Override
     public boolean onUnbind(Intent intent) {
+        if (SERVICE_INTERFACE.equals(intent.getAction())) {
+            return super.onUnbind(intent);
+        }
+        if (standbyTimeout > 0 && foregroundSession != null) {
+            enterStandby();
+            return true;
+        }
         this.destroy();
         return super.onUnbind(intent);
     }
 
-    public void connectAndInitialize(MediaSessionPlugin plugin, Intent intent) {
+    public boolean connectAndInitialize(MediaSessionPlugin plugin, Intent intent) {
+        Trace.beginSection("MediaSessionService.connectAndInitialize");
         this.plugin = plugin;
+        awaitingPlugin = false;
+        handler.removeCallbacks(standbyExpired);
+
+        final boolean warm = defaultSession.isInitialized();
+        setContentIntent(intent);
+        for (ManagedSession session : sessions.values()) {
+            if (session.isInitialized()) {
+                session.activate();
+            } else {
+                attach(session);
+            }
+        }
+        if (foregroundSession == null) {
+            foregroundSession = defaultSession;
+        }
+        startForeground(foregroundSession);
 
-        mediaSession = new MediaSessionCompat(this, "WebViewMediaSession");
-        mediaSession.setCallback(new MediaSessionCallback(plugin));
-        mediaSession.setActive(true);
-
-        playbackStateBuilder = new PlaybackStateCompat.Builder()
-                .setActions(PlaybackStateCompat.ACTION_PLAY)
-                .setState(PlaybackStateCompat.STATE_PAUSED, position, playbackSpeed);
-        mediaSession.setPlaybackState(playbackStateBuilder.build());
-
-        mediaMetadataBuilder = new MediaMetadataCompat.Builder()
-                .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, duration);
-        mediaSession.setMetadata(mediaMetadataBuilder.build());
+        while (!pendingActions.isEmpty()) {
+            pendingActions.removeFirst().dispatch(plugin);
+        }
+        Trace.endSection();
+        return warm;
+    }
 
-        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            NotificationChannel channel = new NotificationChannel("playback", "Playback", NotificationManager.IMPORTANCE_LOW);
-            notificationManager.createNotificationChannel(channel);
+    private void setContentIntent(Intent intent) {
+        if (contentIntent == null) {
+            contentIntent = PendingIntent.getActivity(getApplicationContext(), 0, intent, PendingIntent.FLAG_IMMUTABLE);
         }
+    }
 
-        notificationStyle = new MediaStyle().setMediaSession(mediaSession.getSessionToken());
-        notificationBuilder = new NotificationCompat.Builder(this, "playback")
-                .setStyle(notificationStyle)
-                .setSmallIcon(android.R.drawable.ic_media_play)
-                .setContentIntent(PendingIntent.getActivity(getApplicationContext(), 0, intent, PendingIntent.FLAG_IMMUTABLE))
-                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+    // Called on the main thread, returns false while there is nothing to attach the session to yet
+    boolean attach(ManagedSession session) {
+        if (contentIntent == null || sessions.get(session.getId()) != session) {
+            return false;
+        }
+        session.initialize(notificationManager, contentIntent);
+        if (getSessionToken() == null) {
+            setSessionToken(session.getMediaSession().getSessionToken());
+        }
+        if (plugin != null) {
+            session.activate();
+        }
+        return true;
+    }
 
+    private void startForeground(ManagedSession session) {
+        final Notification notification = session.foregroundNotification();
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            startForeground(NOTIFICATION_ID, notificationBuilder.build(), ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+            startForeground(session.getNotificationId(), notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
         } else {
-            startForeground(NOTIFICATION_ID, notificationBuilder.build());
-        }
-
-        notificationActions.put("play", new NotificationCompat.Action(
-                android.R.drawable.ic_media_play, "Play", MediaButtonReceiver.buildMediaButtonPendingIntent(this, (PlaybackStateCompat.ACTION_PLAY))
-        ));
-        notificationActions.put("pause", new NotificationCompat.Action(
-                android.R.drawable.ic_media_pause, "Pause", MediaButtonReceiver.buildMediaButtonPendingIntent(this, (PlaybackStateCompat.ACTION_PAUSE))
-        ));
-        notificationActions.put("seekbackward", new NotificationCompat.Action(
-                android.R.drawable.ic_media_rew, "Seek Backward", MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_REWIND)
-        ));
-        notificationActions.put("seekforward", new NotificationCompat.Action(
-                android.R.drawable.ic_media_ff, "Seek Forward", MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_FAST_FORWARD)
-        ));
-        notificationActions.put("previoustrack", new NotificationCompat.Action(
-                android.R.drawable.ic_media_previous, "Previous Track", MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS)
-        ));
-        notificationActions.put("nexttrack", new NotificationCompat.Action(
-                android.R.drawable.ic_media_next, "Next Track", MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_SKIP_TO_NEXT)
-        ));
-        notificationActions.put("stop", new NotificationCompat.Action(
-                android.R.drawable.ic_media_pause, "Stop", MediaButtonReceiver.buildMediaButtonPendingIntent(this, PlaybackStateCompat.ACTION_STOP)
-        ));
-
-        playbackStateActions.put("previoustrack", PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS);
-        playbackStateActions.put("seekbackward", PlaybackStateCompat.ACTION_REWIND);
-        playbackStateActions.put("play", (PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_PLAY));
-        playbackStateActions.put("pause", (PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_PAUSE));
-        playbackStateActions.put("seekforward", PlaybackStateCompat.ACTION_FAST_FORWARD);
-        playbackStateActions.put("nexttrack", PlaybackStateCompat.ACTION_SKIP_TO_NEXT);
-        playbackStateActions.put("seekto", PlaybackStateCompat.ACTION_SEEK_TO);
-        playbackStateActions.put("stop", PlaybackStateCompat.ACTION_STOP);
+            startForeground(session.getNotificationId(), notification);
+        }
+        inForeground = true;
     }
 
-    public void destroy() {
-        stopForeground(true);
-        stopSelf();
+    boolean ownsForeground(ManagedSession session) {
+        return session == foregroundSession;
     }
 
-    @Override
-    public int onStartCommand(Intent intent, int flags, int startId) {
-        MediaButtonReceiver.handleIntent(mediaSession, intent);
-        return super.onStartCommand(intent, flags, startId);
+    // The session that most recently started playing owns the foreground notification,
+    // when it stops the ownership moves to another playing session if there is one
+    void updateForeground(ManagedSession session) {
+        if (foregroundSession == null) {
+            return;
+        }
+        if (session != foregroundSession && session.isPlaying()) {
+            moveForeground(session);
+        } else if (session == foregroundSession && !session.isPlaying()) {
+            for (ManagedSession candidate : sessions.values()) {
+                if (candidate != session && candidate.isInitialized() && candidate.isPlaying()) {
+                    moveForeground(candidate);
+                    return;
+                }
+            }
+        }
     }
 
-    public void setPlaybackState(int playbackState) {
-        if (this.playbackState != playbackState) {
-            this.playbackState = playbackState;
-            playbackStateUpdate = true;
-            possibleActionsUpdate = true;
+    private void moveForeground(ManagedSession session) {
+        final ManagedSession previous = foregroundSession;
+        foregroundSession = session;
+        startForeground(session);
+        previous.onForegroundChanged();
+    }
+
+    void saveSnapshot(ManagedSession session, SessionState state, long position) {
+        if (session == foregroundSession) {
+            snapshot.save(session.getId(), state, position);
         }
     }
 
-    public void setTitle(String title)  {
-        if (!this.title.equals(title)) {
-            this.title = title;
-            mediaMetadataUpdate = true;
-            notificationUpdate = true;
+    private Intent launchIntent() {
+        return getPackageManager().getLaunchIntentForPackage(getPackageName());
+    }
+
+    // A media button woke the service after the process died, show the last session until the plugin binds
+    private void restoreSession() {
+        Trace.beginSection("MediaSessionService.restoreSession");
+        SessionSnapshot.Restored restored = snapshot.load();
+        ManagedSession session = defaultSession;
+        if (restored != null) {
+            session = session(restored.sessionId);
+            session.restore(restored.state);
+        }
+        setContentIntent(launchIntent());
+        if (!session.isInitialized()) {
+            attach(session);
         }
+        session.activate();
+        foregroundSession = session;
+        session.apply();
+        startForeground(session);
+        handler.postDelayed(standbyExpired, RESTORED_SESSION_TIMEOUT_MS);
+        awaitingPlugin = true;
+        Trace.endSection();
     }
 
-    public void setArtist(String artist) {
-        if (!this.artist.equals(artist)) {
-            this.artist = artist;
-            mediaMetadataUpdate = true;
-            notificationUpdate = true;
+    // A media button pressed while in standby brings the last session back until the plugin binds,
+    // the pressed action is queued for it
+    private void resumeFromStandby() {
+        handler.removeCallbacks(standbyExpired);
+        if (!foregroundSession.isInitialized()) {
+            attach(foregroundSession);
         }
+        foregroundSession.activate();
+        startForeground(foregroundSession);
+        handler.postDelayed(standbyExpired, RESTORED_SESSION_TIMEOUT_MS);
+        awaitingPlugin = true;
     }
 
-    public void setAlbum(String album) {
-        if (!this.album.equals(album)) {
-            this.album = album;
-            mediaMetadataUpdate = true;
-            notificationUpdate = true;
+    public ManagedSession session(String id) {
+        ManagedSession session = sessions.get(id);
+        if (session == null) {
+            synchronized (sessions) {
+                session = sessions.get(id);
+                if (session == null) {
+                    session = new ManagedSession(this, id, nextNotificationId.getAndIncrement());
+                    sessions.put(id, session);
+                }
+            }
         }
+        return session;
+    }
+
+    public ManagedSession findSession(String id) {
+        return sessions.get(id);
     }
 
-    public void setArtwork(Bitmap artwork) {
-        this.artwork = artwork;
-        mediaMetadataUpdate = true;
-        notificationUpdate = true;
+    public Set<String> getSessionIds() {
+        return sessions.keySet();
     }
 
-    public void setDuration(long duration) {
-        if (this.duration != duration) {
-            this.duration = duration;
-            mediaMetadataUpdate = true;
-            notificationUpdate = true;
+    public void releaseSession(String id) {
+        if (ManagedSession.DEFAULT_ID.equals(id)) {
+            return;
+        }
+        final ManagedSession session;
+        synchronized (sessions) {
+            session = sessions.remove(id);
+        }
+        if (session != null) {
+            handler.post(() -> release(session));
         }
     }
 
-    public void setPosition(long position) {
-        if (this.position != position) {
-            this.position = position;
-            playbackStateUpdate = true;
+    private void release(ManagedSession session) {
+        if (session == foregroundSession) {
+            ManagedSession next = defaultSession;
+            for (ManagedSession candidate : sessions.values()) {
+                if (candidate.isInitialized() && candidate.isPlaying()) {
+                    next = candidate;
+                    break;
+                }
+            }
+            if (!next.isInitialized()) {
+                attach(next);
+            }
+            foregroundSession = next;
+            startForeground(next);
         }
+        session.release();
     }
 
-    public void setPlaybackSpeed(float playbackSpeed) {
-        if (this.playbackSpeed != playbackSpeed) {
-            this.playbackSpeed = playbackSpeed;
-            playbackStateUpdate = true;
+    void dispatch(PendingAction action) {
+        MediaSessionPlugin plugin = this.plugin;
+        if (plugin != null) {
+            action.dispatch(plugin);
+            return;
+        }
+        if (pendingActions.size() == MAX_PENDING_ACTIONS) {
+            pendingActions.removeFirst();
         }
+        pendingActions.addLast(action);
     }
 
-    @SuppressLint("RestrictedApi")
-    public void update() {
-        if (possibleActionsUpdate) {
-            if (notificationBuilder != null) {
-                notificationBuilder.mActions.clear();
-            }
+    private void enterStandby() {
+        plugin = null;
+        for (ManagedSession session : sessions.values()) {
+            session.standby(true);
+        }
+        pendingActions.clear();
+        // The notification stays until the standby timeout expires or playback resumes
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_DETACH);
+        inForeground = false;
+        handler.postDelayed(standbyExpired, standbyTimeout);
+    }
 
-            long activePlaybackStateActions = 0;
-            int[] activeCompactViewActionIndices = new int[3];
-
-            int notificationActionIndex = 0;
-            int compactNotificationActionIndicesIndex = 0;
-            for (String actionName : possibleActions) {
-                if (plugin.hasActionHandler(actionName)) {
-                    if (actionName.equals("play") && playbackState != PlaybackStateCompat.STATE_PAUSED) {
-                        continue;
-                    }
-                    if (actionName.equals("pause") && playbackState != PlaybackStateCompat.STATE_PLAYING) {
-                        continue;
-                    }
-
-                    if (playbackStateActions.containsKey(actionName)) {
-                        activePlaybackStateActions = activePlaybackStateActions | playbackStateActions.get(actionName);
-                    }
-
-                    if (notificationActions.containsKey(actionName)) {
-                        notificationBuilder.addAction(notificationActions.get(actionName));
-                        if (possibleCompactViewActions.contains(actionName) && compactNotificationActionIndicesIndex < 3) {
-                            activeCompactViewActionIndices[compactNotificationActionIndicesIndex] = notificationActionIndex;
-                            compactNotificationActionIndicesIndex++;
-                        }
-                        notificationActionIndex++;
-                    }
-                }
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (foregroundSession == null) {
+            return;
+        }
+        // A session restored without the plugin stays for the user to resume until the process is about to go
+        if (plugin == null && level >= TRIM_MEMORY_COMPLETE) {
+            destroy();
+        } else if (level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_BACKGROUND) {
+            for (ManagedSession session : sessions.values()) {
+                session.trimMemory();
             }
+            browseTree.trimMemory();
+        }
+    }
 
-            if (playbackStateBuilder != null) {
-                playbackStateBuilder.setActions(activePlaybackStateActions);
-            }
-            if (notificationStyle != null) {
-                if (compactNotificationActionIndicesIndex > 0) {
-                    notificationStyle.setShowActionsInCompactView(Arrays.copyOfRange(activeCompactViewActionIndices, 0, compactNotificationActionIndicesIndex));
-                } else {
-                    notificationStyle.setShowActionsInCompactView();
-                }
-            }
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
 
-            possibleActionsUpdate = false;
-            playbackStateUpdate = true;
-            notificationUpdate = true;
-        }
+    public void setStandbyTimeout(long standbyTimeout) {
+        this.standbyTimeout = standbyTimeout;
+    }
 
-        if (playbackStateUpdate && playbackStateBuilder != null) {
-            playbackStateBuilder.setState(this.playbackState, this.position, this.playbackSpeed);
-            mediaSession.setPlaybackState(playbackStateBuilder.build());
-            playbackStateUpdate = false;
-        }
+    public void setPositionDriftThreshold(long positionDriftThreshold) {
+        this.positionDriftThreshold = positionDriftThreshold;
+    }
+
+    long getPositionDriftThreshold() {
+        return positionDriftThreshold;
+    }
 
-        if (mediaMetadataUpdate && mediaMetadataBuilder != null) {
-            mediaMetadataBuilder
-                    .putString(MediaMetadataCompat.METADATA_KEY_TITLE, title)
-                    .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, artist)
-                    .putString(MediaMetadataCompat.METADATA_KEY_ALBUM, album)
-                    .putBitmap(MediaMetadataCompat.METADATA_KEY_ALBUM_ART, artwork)
-                    .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, duration);
-            mediaSession.setMetadata(mediaMetadataBuilder.build());
-            mediaMetadataUpdate = false;
+    public void destroy() {
+        awaitingPlugin = false;
+        handler.removeCallbacks(standbyExpired);
+        for (ManagedSession session : sessions.values()) {
+            session.standby();
         }
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        inForeground = false;
+        stopSelf();
+    }
 
-        if (notificationUpdate && notificationBuilder != null) {
-            notificationBuilder
-                    .setContentTitle(title)
-                    .setContentText(artist + " - " + album)
-                    .setLargeIcon(artwork);
-            notificationManager.notify(NOTIFICATION_ID, notificationBuilder.build());
-            notificationUpdate = false;
+    @Override
+    public void onDestroy() {
+        awaitingPlugin = false;
+        handler.removeCallbacksAndMessages(null);
+        pendingActions.clear();
+        snapshot.shutdown();
+        browseTree.setListener(null);
+        browseExecutor.shutdownNow();
+        for (ManagedSession session : sessions.values()) {
+            session.release();
         }
+        sessions.clear();
+        foregroundSession = null;
+        super.onDestroy();
     }
 
-    public void updatePossibleActions() {
-        this.possibleActionsUpdate = true;
-        this.update();
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // MediaButtonReceiver starts the service with startForegroundService, which has to be answered with startForeground
+        if (!inForeground && intent != null && Intent.ACTION_MEDIA_BUTTON.equals(intent.getAction())) {
+            if (foregroundSession == null) {
+                restoreSession();
+            } else {
+                resumeFromStandby();
+            }
+        }
+        MediaButtonReceiver.handleIntent(foregroundSession != null ? foregroundSession.getMediaSession() : null, intent);
+        return super.onStartCommand(intent, flags, startId);
     }
-}
\ No newline at end of file
+}
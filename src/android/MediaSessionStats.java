@@ -0,0 +1,110 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+final class MediaSessionStats {
+    static final int POSITION_UPDATES = 0;
+    static final int PLAYBACK_STATE_PUBLISHES = 1;
+    static final int METADATA_PUBLISHES = 2;
+    static final int QUEUE_PUBLISHES = 3;
+    static final int NOTIFICATION_REQUESTS = 4;
+    static final int NOTIFICATION_POSTS = 5;
+    static final int ARTWORK_REQUESTS = 6;
+    static final int ARTWORK_BYTES_FETCHED = 7;
+    static final int ARTWORK_BITMAP_BYTES = 8;
+    static final int ACTION_EVENTS = 9;
+    static final int COLD_STARTS = 10;
+    static final int WARM_STARTS = 11;
+    static final int ARTWORK_BYTES_PARCELLED = 12;
+
+    private static final String[] COUNTER_NAMES = {
+            "positionUpdates", "playbackStatePublishes", "metadataPublishes", "queuePublishes",
+            "notificationRequests", "notificationPosts", "artworkRequests", "artworkBytesFetched",
+            "artworkBitmapBytes", "actionEvents", "coldStarts", "warmStarts", "artworkBytesParcelled"
+    };
+
+    static final int APPLY = 0;
+    static final int PLAYBACK_STATE_PUBLISH = 1;
+    static final int METADATA_PUBLISH = 2;
+    static final int NOTIFICATION_BUILD = 3;
+    static final int NOTIFICATION_POST = 4;
+    static final int ARTWORK_FETCH = 5;
+    static final int ARTWORK_DECODE = 6;
+    static final int ACTION_CALLBACK = 7;
+    static final int SERVICE_BIND_COLD = 8;
+    static final int SERVICE_BIND_WARM = 9;
+
+    private static final String[] TIMER_NAMES = {
+            "apply", "playbackStatePublish", "metadataPublish", "notificationBuild", "notificationPost",
+            "artworkFetch", "artworkDecode", "actionCallback", "serviceBindCold", "serviceBindWarm"
+    };
+
+    // Bucket i counts durations in [2^(i-1), 2^i) microseconds, bucket 0 is under 1us
+    private static final int BUCKETS = 32;
+    private static final int COUNT = 0;
+    private static final int TOTAL_NANOS = 1;
+    private static final int MAX_NANOS = 2;
+
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private static final AtomicLongArray timerTotals = new AtomicLongArray(TIMER_NAMES.length * 3);
+    private static final AtomicLongArray histograms = new AtomicLongArray(TIMER_NAMES.length * BUCKETS);
+
+    private MediaSessionStats() {
+    }
+
+    static void count(int counter) {
+        counters.incrementAndGet(counter);
+    }
+
+    static void add(int counter, long delta) {
+        counters.addAndGet(counter, delta);
+    }
+
+    static void time(int timer, long nanos) {
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos / 1000));
+        histograms.incrementAndGet(timer * BUCKETS + bucket);
+        timerTotals.incrementAndGet(timer * 3 + COUNT);
+        timerTotals.addAndGet(timer * 3 + TOTAL_NANOS, nanos);
+        long max;
+        do {
+            max = timerTotals.get(timer * 3 + MAX_NANOS);
+        } while (nanos > max && !timerTotals.compareAndSet(timer * 3 + MAX_NANOS, max, nanos));
+    }
+
+    static JSONObject snapshot() throws JSONException {
+        JSONObject counterStats = new JSONObject();
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            counterStats.put(COUNTER_NAMES[i], counters.get(i));
+        }
+
+        JSONObject timerStats = new JSONObject();
+        for (int i = 0; i < TIMER_NAMES.length; i++) {
+            long count = timerTotals.get(i * 3 + COUNT);
+            JSONObject timer = new JSONObject();
+            timer.put("count", count);
+            timer.put("totalUs", timerTotals.get(i * 3 + TOTAL_NANOS) / 1000);
+            timer.put("maxUs", timerTotals.get(i * 3 + MAX_NANOS) / 1000);
+            JSONArray histogram = new JSONArray();
+            int last = -1;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (histograms.get(i * BUCKETS + bucket) != 0) {
+                    last = bucket;
+                }
+            }
+            for (int bucket = 0; bucket <= last; bucket++) {
+                histogram.put(histograms.get(i * BUCKETS + bucket));
+            }
+            timer.put("histogram", histogram);
+            timerStats.put(TIMER_NAMES[i], timer);
+        }
+
+        JSONObject stats = new JSONObject();
+        stats.put("counters", counterStats);
+        stats.put("timers", timerStats);
+        return stats;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class NotificationScheduler {
+    private static final long FRAME_WINDOW_MS = 16;
+    // NotificationManagerService drops updates from apps posting more than ~5 per second
+    private static final long MIN_POST_INTERVAL_MS = 200;
+
+    interface Renderer {
+        Notification build();
+    }
+
+    private final NotificationManager notificationManager;
+    private final int notificationId;
+    private final Renderer renderer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Runnable scheduledPost = this::post;
+    private volatile long lastPostTime = 0;
+
+    NotificationScheduler(NotificationManager notificationManager, int notificationId, Renderer renderer) {
+        this.notificationManager = notificationManager;
+        this.notificationId = notificationId;
+        this.renderer = renderer;
+    }
+
+    public void invalidate() {
+        MediaSessionStats.count(MediaSessionStats.NOTIFICATION_REQUESTS);
+        if (scheduled.compareAndSet(false, true)) {
+            long delay = Math.max(FRAME_WINDOW_MS, lastPostTime + MIN_POST_INTERVAL_MS - SystemClock.uptimeMillis());
+            handler.postDelayed(scheduledPost, delay);
+        }
+    }
+
+    public void flush() {
+        if (scheduled.get()) {
+            handler.removeCallbacks(scheduledPost);
+            post();
+        }
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(scheduledPost);
+        scheduled.set(false);
+    }
+
+    private void post() {
+        scheduled.set(false);
+        Trace.beginSection("NotificationScheduler.post");
+        long start = SystemClock.elapsedRealtimeNanos();
+        Notification notification = renderer.build();
+        long built = SystemClock.elapsedRealtimeNanos();
+        notificationManager.notify(notificationId, notification);
+        long posted = SystemClock.elapsedRealtimeNanos();
+        Trace.endSection();
+        MediaSessionStats.time(MediaSessionStats.NOTIFICATION_BUILD, built - start);
+        MediaSessionStats.time(MediaSessionStats.NOTIFICATION_POST, posted - built);
+        MediaSessionStats.count(MediaSessionStats.NOTIFICATION_POSTS);
+        lastPostTime = SystemClock.uptimeMillis();
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+final class PlaybackClock {
+    private long position = 0;
+    private long updateTime = 0;
+    private float speed = 1.0F;
+    private boolean running = false;
+    private long duration = 0;
+
+    synchronized void set(long position, long updateTime, float speed, boolean running, long duration) {
+        this.position = position;
+        this.updateTime = updateTime;
+        this.speed = speed;
+        this.running = running;
+        this.duration = duration;
+    }
+
+    synchronized long position(long now) {
+        if (!running) {
+            return position;
+        }
+        long extrapolated = position + (long) ((now - updateTime) * speed);
+        if (duration > 0) {
+            extrapolated = Math.min(extrapolated, duration);
+        }
+        return Math.max(0, extrapolated);
+    }
+}
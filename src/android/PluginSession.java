@@ -0,0 +1,117 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.v4.media.session.PlaybackStateCompat;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class PluginSession {
+    static final int DIRTY_METADATA = 1;
+    static final int DIRTY_PLAYBACK_STATE = 1 << 1;
+    static final int DIRTY_POSITION = 1 << 2;
+    static final int DIRTY_ACTIONS = 1 << 3;
+    static final int DIRTY_QUEUE = 1 << 4;
+    static final int DIRTY_ALL = (1 << 5) - 1;
+
+    private static final int MAX_PENDING_EVENTS = 16;
+
+    final String id;
+    final ArtworkLoader.Target artworkTarget;
+    final MediaQueue queue = new MediaQueue();
+
+    volatile String title = "";
+    volatile String artist = "";
+    volatile String album = "";
+    volatile String artworkSrc = "";
+    volatile Bitmap artwork = null;
+    volatile long artworkFingerprint = 0;
+    volatile String playbackState = "none";
+    volatile double duration = 0.0;
+    volatile double position = 0.0;
+    volatile double playbackRate = 1.0;
+    volatile int actionHandlerMask = 0;
+    volatile int enabledActionMask = ~0;
+
+    private final AtomicInteger dirty = new AtomicInteger();
+    private CallbackContext eventChannel = null;
+    private final ArrayDeque<String> pendingEvents = new ArrayDeque<>();
+
+    PluginSession(String id, ArtworkLoader.Target artworkTarget) {
+        this.id = id;
+        this.artworkTarget = artworkTarget;
+    }
+
+    public void markDirty(int flags) {
+        int current;
+        do {
+            current = dirty.get();
+        } while (!dirty.compareAndSet(current, current | flags));
+    }
+
+    public int takeDirty() {
+        return dirty.getAndSet(0);
+    }
+
+    // Keeps a session restored after process death on screen until JS has set something
+    public boolean hasState() {
+        return !playbackState.equals("none") || !title.isEmpty() || !artworkSrc.isEmpty() || actionHandlerMask != 0;
+    }
+
+    public boolean isInPlayback() {
+        return playbackState.equals("playing") || playbackState.equals("paused");
+    }
+
+    public int getPlaybackStateCompat() {
+        if (playbackState.equals("playing")) {
+            return PlaybackStateCompat.STATE_PLAYING;
+        } else if (playbackState.equals("paused")) {
+            return PlaybackStateCompat.STATE_PAUSED;
+        }
+        return PlaybackStateCompat.STATE_NONE;
+    }
+
+    public int getActionMask() {
+        return actionHandlerMask & enabledActionMask;
+    }
+
+    public void registerEventChannel(CallbackContext callbackContext) {
+        PluginResult pluginResult = new PluginResult(PluginResult.Status.NO_RESULT);
+        pluginResult.setKeepCallback(true);
+        callbackContext.sendPluginResult(pluginResult);
+
+        synchronized (pendingEvents) {
+            eventChannel = callbackContext;
+            while (!pendingEvents.isEmpty()) {
+                sendEvent(pendingEvents.removeFirst());
+            }
+        }
+    }
+
+    public void sendEvent(String event) {
+        synchronized (pendingEvents) {
+            CallbackContext channel = eventChannel;
+            if (channel == null) {
+                // Actions replayed from a restored session can arrive before JS registered its handlers
+                if (pendingEvents.size() == MAX_PENDING_EVENTS) {
+                    pendingEvents.removeFirst();
+                }
+                pendingEvents.addLast(event);
+                return;
+            }
+            Trace.beginSection("PluginSession.sendEvent");
+            final long start = SystemClock.elapsedRealtimeNanos();
+            PluginResult result = new PluginResult(PluginResult.Status.OK, event);
+            result.setKeepCallback(true);
+            channel.sendPluginResult(result);
+            MediaSessionStats.time(MediaSessionStats.ACTION_CALLBACK, SystemClock.elapsedRealtimeNanos() - start);
+            MediaSessionStats.count(MediaSessionStats.ACTION_EVENTS);
+            Trace.endSection();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.media.session.PlaybackStateCompat;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+class SessionSnapshot {
+    private static final String TAG = "SessionSnapshot";
+    private static final String DIRECTORY = "media-session";
+    private static final String STATE_FILE = "snapshot.json";
+    private static final String THUMBNAIL_FILE = "thumbnail.jpg";
+    private static final int THUMBNAIL_SIZE = 128;
+
+    static final class Restored {
+        final String sessionId;
+        final SessionState state;
+
+        Restored(String sessionId, SessionState state) {
+            this.sessionId = sessionId;
+            this.state = state;
+        }
+    }
+
+    private final File directory;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicReference<SessionState> pendingState = new AtomicReference<>();
+    private volatile long pendingPosition = 0;
+    private volatile String pendingSessionId = ManagedSession.DEFAULT_ID;
+    private long savedArtworkFingerprint = -1;
+
+    SessionSnapshot(File filesDir) {
+        this.directory = new File(filesDir, DIRECTORY);
+    }
+
+    public void save(String sessionId, SessionState state, long position) {
+        pendingSessionId = sessionId;
+        pendingPosition = position;
+        if (pendingState.getAndSet(state) == null) {
+            executor.execute(this::write);
+        }
+    }
+
+    public Restored load() {
+        final byte[] data;
+        try (InputStream in = new FileInputStream(new File(directory, STATE_FILE))) {
+            data = readFully(in);
+        } catch (IOException e) {
+            return null;
+        }
+
+        try {
+            JSONObject snapshot = new JSONObject(new String(data, StandardCharsets.UTF_8));
+            if (snapshot.getInt("playbackState") == PlaybackStateCompat.STATE_NONE) {
+                return null;
+            }
+            Bitmap thumbnail = null;
+            if (snapshot.optBoolean("thumbnail")) {
+                thumbnail = BitmapFactory.decodeFile(new File(directory, THUMBNAIL_FILE).getPath());
+            }
+            SessionState state = SessionState.EMPTY
+                    .withPlaybackState(PlaybackStateCompat.STATE_PAUSED)
+                    .withTitle(snapshot.optString("title", ""))
+                    .withArtist(snapshot.optString("artist", ""))
+                    .withAlbum(snapshot.optString("album", ""))
+                    .withArtwork(thumbnail, ArtworkDecoder.fingerprint(THUMBNAIL_FILE, thumbnail))
+                    .withDuration(snapshot.optLong("duration"))
+                    .withPosition(snapshot.optLong("position"), SystemClock.elapsedRealtime())
+                    .withPlaybackSpeed((float) snapshot.optDouble("playbackSpeed", 1.0))
+                    .withActionMask(snapshot.optInt("actionMask"))
+                    .withActiveQueueItemId(snapshot.optLong("activeQueueItemId", SessionState.EMPTY.activeQueueItemId));
+            return new Restored(snapshot.optString("sessionId", ManagedSession.DEFAULT_ID), state);
+        } catch (JSONException e) {
+            Log.w(TAG, "Discarding unreadable session snapshot", e);
+            return null;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void write() {
+        final SessionState state = pendingState.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create session snapshot directory");
+            return;
+        }
+
+        try {
+            if (state.artworkFingerprint != savedArtworkFingerprint) {
+                writeThumbnail(state.artwork);
+                savedArtworkFingerprint = state.artworkFingerprint;
+            }
+
+            JSONObject snapshot = new JSONObject();
+            snapshot.put("sessionId", pendingSessionId);
+            snapshot.put("playbackState", state.playbackState);
+            snapshot.put("title", state.title);
+            snapshot.put("artist", state.artist);
+            snapshot.put("album", state.album);
+            snapshot.put("thumbnail", state.artwork != null);
+            snapshot.put("duration", state.duration);
+            snapshot.put("position", pendingPosition);
+            snapshot.put("playbackSpeed", state.playbackSpeed);
+            snapshot.put("actionMask", state.actionMask);
+            snapshot.put("activeQueueItemId", state.activeQueueItemId);
+            writeAtomically(STATE_FILE, snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            Log.w(TAG, "Error saving session snapshot", e);
+        }
+    }
+
+    private void writeThumbnail(Bitmap artwork) throws IOException {
+        File file = new File(directory, THUMBNAIL_FILE);
+        if (artwork == null) {
+            file.delete();
+            return;
+        }
+
+        Bitmap source = artwork;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && artwork.getConfig() == Bitmap.Config.HARDWARE) {
+            source = artwork.copy(Bitmap.Config.ARGB_8888, false);
+        }
+        float scale = Math.min(1.0F, (float) THUMBNAIL_SIZE / Math.max(source.getWidth(), source.getHeight()));
+        Bitmap thumbnail = Bitmap.createScaledBitmap(source,
+                Math.max(1, Math.round(source.getWidth() * scale)),
+                Math.max(1, Math.round(source.getHeight() * scale)), true);
+
+        File temp = File.createTempFile("thumbnail", ".tmp", directory);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, 85, out);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot store session thumbnail");
+        }
+    }
+
+    private void writeAtomically(String name, byte[] data) throws IOException {
+        File temp = File.createTempFile(name, ".tmp", directory);
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+        }
+        if (!temp.renameTo(new File(directory, name))) {
+            temp.delete();
+            throw new IOException("Cannot store " + name);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+        }
+        byte[] data = new byte[length];
+        System.arraycopy(buffer, 0, data, 0, length);
+        return data;
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.support.v4.media.session.MediaSessionCompat;
+import android.support.v4.media.session.PlaybackStateCompat;
+
+final class SessionState {
+    static final SessionState EMPTY = new SessionState(PlaybackStateCompat.STATE_NONE, "", "", "", null, 0, 0, 0, 0, 1.0F, 0, MediaSessionCompat.QueueItem.UNKNOWN_ID);
+
+    final int playbackState;
+    final String title;
+    final String artist;
+    final String album;
+    final Bitmap artwork;
+    final long artworkFingerprint;
+    final long duration;
+    final long position;
+    final long positionUpdateTime;
+    final float playbackSpeed;
+    final int actionMask;
+    final long activeQueueItemId;
+
+    private SessionState(int playbackState, String title, String artist, String album, Bitmap artwork,
+                         long artworkFingerprint, long duration, long position, long positionUpdateTime, float playbackSpeed, int actionMask,
+                         long activeQueueItemId) {
+        this.playbackState = playbackState;
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.artwork = artwork;
+        this.artworkFingerprint = artworkFingerprint;
+        this.duration = duration;
+        this.position = position;
+        this.positionUpdateTime = positionUpdateTime;
+        this.playbackSpeed = playbackSpeed;
+        this.actionMask = actionMask;
+        this.activeQueueItemId = activeQueueItemId;
+    }
+
+    SessionState withPlaybackState(int playbackState) {
+        if (this.playbackState == playbackState) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withTitle(String title) {
+        if (this.title.equals(title)) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withArtist(String artist) {
+        if (this.artist.equals(artist)) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withAlbum(String album) {
+        if (this.album.equals(album)) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withArtwork(Bitmap artwork, long artworkFingerprint) {
+        if (this.artwork == artwork && this.artworkFingerprint == artworkFingerprint) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withDuration(long duration) {
+        if (this.duration == duration) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withPosition(long position, long positionUpdateTime) {
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withPlaybackSpeed(float playbackSpeed) {
+        if (this.playbackSpeed == playbackSpeed) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withActionMask(int actionMask) {
+        if (this.actionMask == actionMask) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    SessionState withActiveQueueItemId(long activeQueueItemId) {
+        if (this.activeQueueItemId == activeQueueItemId) {
+            return this;
+        }
+        return new SessionState(playbackState, title, artist, album, artwork, artworkFingerprint, duration, position, positionUpdateTime, playbackSpeed, actionMask, activeQueueItemId);
+    }
+
+    boolean hasSameMetadata(SessionState other) {
+        return title.equals(other.title)
+                && artist.equals(other.artist)
+                && album.equals(other.album)
+                && artworkFingerprint == other.artworkFingerprint
+                && duration == other.duration;
+    }
+}
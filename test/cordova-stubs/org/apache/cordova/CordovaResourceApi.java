@@ -0,0 +1,112 @@
+package org.apache.cordova;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.net.Uri;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Stand-in for the cordova-android class, resolves the URI types artwork can come from without plugin remapping
+public class CordovaResourceApi {
+    public static final int URI_TYPE_FILE = 0;
+    public static final int URI_TYPE_ASSET = 1;
+    public static final int URI_TYPE_CONTENT = 2;
+    public static final int URI_TYPE_RESOURCE = 3;
+    public static final int URI_TYPE_DATA = 4;
+    public static final int URI_TYPE_HTTP = 5;
+    public static final int URI_TYPE_HTTPS = 6;
+    public static final int URI_TYPE_PLUGIN = 7;
+    public static final int URI_TYPE_UNKNOWN = -1;
+
+    private static final String ASSET_PREFIX = "/android_asset/";
+
+    private final ContentResolver contentResolver;
+    private final AssetManager assetManager;
+
+    public CordovaResourceApi(Context context) {
+        this.contentResolver = context.getContentResolver();
+        this.assetManager = context.getAssets();
+    }
+
+    public static int getUriType(Uri uri) {
+        String scheme = uri.getScheme();
+        if (ContentResolver.SCHEME_CONTENT.equalsIgnoreCase(scheme)) {
+            return URI_TYPE_CONTENT;
+        }
+        if (ContentResolver.SCHEME_ANDROID_RESOURCE.equalsIgnoreCase(scheme)) {
+            return URI_TYPE_RESOURCE;
+        }
+        if (ContentResolver.SCHEME_FILE.equalsIgnoreCase(scheme)) {
+            return uri.getPath().startsWith(ASSET_PREFIX) ? URI_TYPE_ASSET : URI_TYPE_FILE;
+        }
+        if ("data".equalsIgnoreCase(scheme)) {
+            return URI_TYPE_DATA;
+        }
+        if ("http".equalsIgnoreCase(scheme)) {
+            return URI_TYPE_HTTP;
+        }
+        if ("https".equalsIgnoreCase(scheme)) {
+            return URI_TYPE_HTTPS;
+        }
+        return URI_TYPE_UNKNOWN;
+    }
+
+    public Uri remapUri(Uri uri) {
+        return uri;
+    }
+
+    public File mapUriToFile(Uri uri) {
+        return getUriType(uri) == URI_TYPE_FILE ? new File(uri.getPath()) : null;
+    }
+
+    public OpenForReadResult openForRead(Uri uri) throws IOException {
+        return openForRead(uri, false);
+    }
+
+    public OpenForReadResult openForRead(Uri uri, boolean skipThreadCheck) throws IOException {
+        switch (getUriType(uri)) {
+            case URI_TYPE_FILE: {
+                File file = new File(uri.getPath());
+                return new OpenForReadResult(uri, new FileInputStream(file), null, file.length(), null);
+            }
+            case URI_TYPE_ASSET: {
+                String assetPath = uri.getPath().substring(ASSET_PREFIX.length());
+                InputStream inputStream = assetManager.open(assetPath);
+                return new OpenForReadResult(uri, inputStream, null, inputStream.available(), null);
+            }
+            case URI_TYPE_CONTENT:
+            case URI_TYPE_RESOURCE: {
+                String mimeType = contentResolver.getType(uri);
+                AssetFileDescriptor assetFd = contentResolver.openAssetFileDescriptor(uri, "r");
+                if (assetFd == null) {
+                    throw new FileNotFoundException("URI not supported by CordovaResourceApi: " + uri);
+                }
+                return new OpenForReadResult(uri, assetFd.createInputStream(), mimeType, assetFd.getLength(), assetFd);
+            }
+            default:
+                throw new FileNotFoundException("URI not supported by CordovaResourceApi: " + uri);
+        }
+    }
+
+    public static final class OpenForReadResult {
+        public final Uri uri;
+        public final InputStream inputStream;
+        public final String mimeType;
+        public final long length;
+        public final AssetFileDescriptor assetFd;
+
+        public OpenForReadResult(Uri uri, InputStream inputStream, String mimeType, long length, AssetFileDescriptor assetFd) {
+            this.uri = uri;
+            this.inputStream = inputStream;
+            this.mimeType = mimeType;
+            this.length = length;
+            this.assetFd = assetFd;
+        }
+    }
+}
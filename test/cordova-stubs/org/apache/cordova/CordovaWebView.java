@@ -0,0 +1,12 @@
+package org.apache.cordova;
+
+import android.content.Context;
+
+// Stand-in for the cordova-android interface, limited to what the plugin uses
+public interface CordovaWebView {
+    Context getContext();
+
+    CordovaResourceApi getResourceApi();
+
+    CordovaPreferences getPreferences();
+}
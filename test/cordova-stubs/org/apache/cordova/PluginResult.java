@@ -0,0 +1,96 @@
+package org.apache.cordova;
+
+import android.util.Base64;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+
+// Stand-in for the cordova-android class, keeps the message as the object it was created with
+public class PluginResult {
+    public enum Status {
+        NO_RESULT,
+        OK,
+        CLASS_NOT_FOUND_EXCEPTION,
+        ILLEGAL_ACCESS_EXCEPTION,
+        INSTANTIATION_EXCEPTION,
+        MALFORMED_URL_EXCEPTION,
+        IO_EXCEPTION,
+        INVALID_ACTION,
+        JSON_EXCEPTION,
+        ERROR
+    }
+
+    private final Status status;
+    private final Object message;
+    private boolean keepCallback = false;
+
+    public PluginResult(Status status) {
+        this(status, (Object) null);
+    }
+
+    public PluginResult(Status status, String message) {
+        this(status, (Object) message);
+    }
+
+    public PluginResult(Status status, JSONArray message) {
+        this(status, (Object) message);
+    }
+
+    public PluginResult(Status status, JSONObject message) {
+        this(status, (Object) message);
+    }
+
+    public PluginResult(Status status, int i) {
+        this(status, (Object) i);
+    }
+
+    public PluginResult(Status status, float f) {
+        this(status, (Object) f);
+    }
+
+    public PluginResult(Status status, boolean b) {
+        this(status, (Object) b);
+    }
+
+    public PluginResult(Status status, byte[] data) {
+        this(status, (Object) Base64.encodeToString(data, Base64.NO_WRAP));
+    }
+
+    public PluginResult(Status status, List<PluginResult> multipartMessages) {
+        this(status, (Object) multipartMessages);
+    }
+
+    private PluginResult(Status status, Object message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public void setKeepCallback(boolean b) {
+        this.keepCallback = b;
+    }
+
+    public boolean getKeepCallback() {
+        return keepCallback;
+    }
+
+    public int getStatus() {
+        return status.ordinal();
+    }
+
+    public Object getMessageObject() {
+        return message;
+    }
+
+    public String getStrMessage() {
+        return message instanceof String ? (String) message : null;
+    }
+
+    public String getMessage() {
+        if (message == null) {
+            return null;
+        }
+        return message instanceof String ? JSONObject.quote((String) message) : message.toString();
+    }
+}
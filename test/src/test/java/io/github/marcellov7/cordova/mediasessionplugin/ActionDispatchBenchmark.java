@@ -0,0 +1,81 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static io.github.marcellov7.cordova.mediasessionplugin.PluginHarness.options;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Media button and controller actions, from the session callback through the service to the JS event channel
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ActionDispatchBenchmark {
+    private static final String SESSION_ID = "action-benchmark";
+
+    private MediaSessionPlugin plugin;
+    private MediaSessionCallback callback;
+    private final EventChannel channel = new EventChannel();
+
+    // Counts the events instead of recording them, a WebView would serialize and drop them just as quickly
+    static class EventChannel extends CallbackContext {
+        final LongAdder events = new LongAdder();
+
+        EventChannel() {
+            super("event-channel");
+        }
+
+        @Override
+        public void sendPluginResult(PluginResult pluginResult) {
+            events.increment();
+        }
+    }
+
+    @Setup
+    public void setUp() throws JSONException {
+        PluginHarness harness = Benchmarks.harness;
+        plugin = harness.plugin;
+        harness.execute("setActionHandler", options("sessionId", SESSION_ID, "action", "play"));
+        harness.execute("setActionHandler", options("sessionId", SESSION_ID, "action", "seekto"));
+        harness.execute(channel, "registerEventChannel", options("sessionId", SESSION_ID));
+        callback = new MediaSessionCallback(harness.service.findSession(SESSION_ID));
+    }
+
+    @TearDown
+    public void tearDown() throws JSONException {
+        Benchmarks.harness.execute("releaseSession", options("sessionId", SESSION_ID));
+    }
+
+    @Benchmark
+    public void actionCallback() {
+        plugin.actionCallback(SESSION_ID, MediaSessionActions.PLAY);
+    }
+
+    @Benchmark
+    public void actionCallbackWithValue() {
+        plugin.actionCallback(SESSION_ID, MediaSessionActions.SEEK_TO, 42.5);
+    }
+
+    @Benchmark
+    public void sessionCallback() {
+        callback.onPlay();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void sessionCallbackContended() {
+        callback.onPlay();
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class ArtworkDecoderTest {
+    private static final int SIZE = 1024;
+
+    private interface Decode {
+        Bitmap run() throws IOException;
+    }
+
+    @Test
+    public void dataUrlDecodesWithoutCopyingThePayload() throws IOException {
+        final String url = "data:image/jpeg;base64," + Base64.encodeToString(encodeArtwork(SIZE), Base64.DEFAULT);
+        final int offset = url.indexOf(";base64,") + 8;
+        final ArtworkDecoder decoder = new ArtworkDecoder(SIZE, "ARGB_8888", new BitmapPool(0));
+
+        // The path urlToBitmap took before: a substring, the decoded bytes, then the decode over them
+        final Decode copying = () -> decoder.decodeBytes(Base64.decode(url.substring(offset), Base64.DEFAULT));
+        final Decode streaming = () -> decoder.decodeBase64(url, offset);
+
+        // The first rounds also pay for class loading and compilation, the least of three is compared
+        long copyingBytes = Long.MAX_VALUE;
+        long streamingBytes = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            copyingBytes = Math.min(copyingBytes, allocatedBytes(copying));
+            streamingBytes = Math.min(streamingBytes, allocatedBytes(streaming));
+        }
+
+        final long payload = url.length() - offset;
+        assertTrue("copying allocated " + copyingBytes + " bytes for a " + payload + " byte payload",
+                copyingBytes > payload);
+        assertTrue("streaming allocated " + streamingBytes + " bytes, copying " + copyingBytes,
+                streamingBytes < payload / 4);
+    }
+
+    private static long allocatedBytes(Decode decode) throws IOException {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(thread);
+        final Bitmap bitmap = decode.run();
+        final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(SIZE, bitmap.getWidth());
+        bitmap.recycle();
+        return allocated;
+    }
+
+    // Noise keeps the JPEG close to the size of real cover art, a flat image would compress to nothing
+    static byte[] encodeArtwork(int size) {
+        final Random random = new Random(size);
+        final int[] pixels = new int[size * size];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(pixels, size, size, Bitmap.Config.ARGB_8888);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        bitmap.recycle();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.graphics.Bitmap;
+import android.util.Base64;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.cordova.CordovaResourceApi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// urlToBitmap against a local HTTP server standing in for an artwork CDN, and against data URLs.
+// Decoded bitmaps go back to the pool the way evicted artwork does, so inBitmap reuse is part of the measurement.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArtworkLoaderBenchmark {
+    private static final String ETAG = "\"artwork-1\"";
+    private static final int MAX_SIZE = 512;
+
+    // Edge of the source image, the decoder downsamples anything above MAX_SIZE
+    @Param({"512", "1500"})
+    public int size;
+
+    private HttpServer server;
+    private File cacheDir;
+    private BitmapPool pool;
+    private ArtworkLoader loader;
+    private String downloadUrl;
+    private String downloadKey;
+    private String revalidatedUrl;
+    private String revalidatedKey;
+    private String dataUrl;
+    private String dataKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final byte[] image = ArtworkDecoderTest.encodeArtwork(size);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/download", exchange -> send(exchange, image));
+        server.createContext("/revalidated", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            send(exchange, image);
+        });
+        server.start();
+
+        final String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        downloadUrl = base + "/download";
+        downloadKey = ArtworkCache.key(downloadUrl);
+        revalidatedUrl = base + "/revalidated";
+        revalidatedKey = ArtworkCache.key(revalidatedUrl);
+        dataUrl = "data:image/jpeg;base64," + Base64.encodeToString(image, Base64.NO_WRAP);
+        dataKey = ArtworkCache.key(dataUrl);
+
+        cacheDir = Files.createTempDirectory("artwork-benchmark").toFile();
+        pool = new BitmapPool(8 * 1024 * 1024);
+        loader = new ArtworkLoader(
+                new ArtworkCache(cacheDir, 16 * 1024 * 1024, 64 * 1024 * 1024, pool),
+                new ArtworkDecoder(MAX_SIZE, "ARGB_8888", pool),
+                new CordovaResourceApi(RuntimeEnvironment.getApplication()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        loader.shutdown();
+        pool.clear();
+        delete(cacheDir);
+    }
+
+    @Benchmark
+    public Bitmap httpDownload() throws IOException {
+        return recycle(loader.urlToBitmap(downloadUrl, downloadKey));
+    }
+
+    @Benchmark
+    public Bitmap httpRevalidated() throws IOException {
+        return recycle(loader.urlToBitmap(revalidatedUrl, revalidatedKey));
+    }
+
+    @Benchmark
+    public Bitmap dataUrl() throws IOException {
+        return recycle(loader.urlToBitmap(dataUrl, dataKey));
+    }
+
+    private Bitmap recycle(Bitmap bitmap) {
+        pool.put(bitmap);
+        return bitmap;
+    }
+
+    private static void send(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.cordova.CordovaResourceApi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+
+@RunWith(RobolectricTestRunner.class)
+public class ArtworkLoaderTest {
+    // Two loads run, four wait in the queue, the seventh pushes out the oldest waiting one
+    private static final int LOADS = 7;
+    private static final int DROPPED = 2;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private File cacheDir;
+    private ArtworkLoader loader;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        cacheDir = Files.createTempDirectory("artwork-loader").toFile();
+        BitmapPool pool = new BitmapPool(0);
+        loader = new ArtworkLoader(
+                new ArtworkCache(cacheDir, 1024 * 1024, 1024 * 1024, pool),
+                new ArtworkDecoder(512, "ARGB_8888", pool),
+                new CordovaResourceApi(RuntimeEnvironment.getApplication()));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+        loader.shutdown();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void loadPushedOutOfTheQueueNoLongerReportsLoading() {
+        final String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/artwork-";
+        final ArtworkLoader.Target[] targets = new ArtworkLoader.Target[LOADS];
+        for (int i = 0; i < LOADS; i++) {
+            targets[i] = loader.newTarget();
+            targets[i].load(base + i, (src, artwork, fingerprint) -> { });
+        }
+
+        for (int i = 0; i < LOADS; i++) {
+            if (i == DROPPED) {
+                assertFalse(targets[i].isLoading());
+            } else {
+                assertTrue("load " + i, targets[i].isLoading());
+            }
+        }
+    }
+}
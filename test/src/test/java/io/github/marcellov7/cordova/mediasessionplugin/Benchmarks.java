@@ -0,0 +1,91 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assume.assumeTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import android.os.Trace;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.GraphicsMode;
+import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the JMH benchmarks inside the Robolectric sandbox, only when the build is asked for them with -Pbenchmark
+@RunWith(RobolectricTestRunner.class)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class Benchmarks {
+    private static final long FRAME_MS = 16;
+
+    // JMH runs the benchmark states on its own threads, in this JVM and class loader
+    static volatile PluginHarness harness;
+
+    @Test
+    public void run() throws Throwable {
+        final String include = System.getProperty("benchmark");
+        assumeTrue("Benchmarks only run with -Pbenchmark", include != null);
+
+        harness = new PluginHarness().set("foregroundService", "always");
+        harness.start();
+        // Robolectric keeps every finished Trace section, the hot paths would fill the heap with them
+        setAppTracingAllowed(false);
+
+        // The sandbox cannot be forked, and its instrumented framework classes take several seconds to warm up.
+        // The GC profiler reports the allocation per operation.
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include.isEmpty() || include.equals("true") ? "Benchmark\\." : include)
+                .forks(0)
+                .warmupIterations(10)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(10)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true);
+        final String results = System.getProperty("benchmark.results");
+        if (results != null) {
+            new File(results).getParentFile().mkdirs();
+            options.result(results).resultFormat(ResultFormatType.JSON);
+        }
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread runner = new Thread(() -> {
+            try {
+                new Runner(options.build()).run();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "jmh");
+        runner.start();
+        // This thread is the main looper, it runs the applies and notification posts the benchmarks queue
+        try {
+            while (runner.isAlive()) {
+                shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(FRAME_MS));
+                runner.join(1);
+            }
+        } finally {
+            setAppTracingAllowed(true);
+            harness.tearDown();
+            harness = null;
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    // Hidden in the SDK, the Robolectric shadow stops recording sections while it is off
+    private static void setAppTracingAllowed(boolean allowed) {
+        ReflectionHelpers.callStaticMethod(Trace.class, "setAppTracingAllowed", ClassParameter.from(boolean.class, allowed));
+    }
+}
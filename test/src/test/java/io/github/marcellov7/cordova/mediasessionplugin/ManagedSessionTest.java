@@ -0,0 +1,87 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Notification;
+import android.os.Looper;
+import android.support.v4.media.session.PlaybackStateCompat;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class ManagedSessionTest {
+    private static final int UPDATES = 5000;
+
+    private PluginHarness harness;
+
+    private interface Setter {
+        void set(int i);
+    }
+
+    @After
+    public void tearDown() {
+        if (harness != null) {
+            harness.tearDown();
+        }
+    }
+
+    @Test
+    public void concurrentSettersEndOnTheLastValueOfEach() throws Exception {
+        harness = new PluginHarness().set("foregroundService", "always");
+        harness.start();
+        final ManagedSession session = harness.service.findSession(ManagedSession.DEFAULT_ID);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> writers = new ArrayList<>();
+        final Setter[] setters = {
+                i -> session.setTitle("title-" + i),
+                i -> session.setArtist("artist-" + i),
+                i -> session.setAlbum("album-" + i),
+                i -> session.setPosition(i * 1000L),
+                i -> session.setPlaybackState(i % 2 == 0 ? PlaybackStateCompat.STATE_PLAYING : PlaybackStateCompat.STATE_PAUSED)
+        };
+        final CyclicBarrier start = new CyclicBarrier(setters.length);
+        for (Setter setter : setters) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < UPDATES; i++) {
+                        setter.set(i);
+                        session.update();
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+
+        // The main looper applies while the writers are still going
+        for (Thread writer : writers) {
+            while (writer.isAlive()) {
+                shadowOf(Looper.getMainLooper()).idle();
+                writer.join(1);
+            }
+        }
+        PluginHarness.idle();
+
+        assertNull(failure.get());
+        final int last = UPDATES - 1;
+        final Notification notification = harness.notification(session);
+        assertEquals("title-" + last, notification.extras.getCharSequence(Notification.EXTRA_TITLE).toString());
+        assertEquals("artist-" + last + " - album-" + last, notification.extras.getCharSequence(Notification.EXTRA_TEXT).toString());
+        assertFalse(session.isPlaying());
+        assertEquals(last * 1000L, session.getPosition());
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static io.github.marcellov7.cordova.mediasessionplugin.PluginHarness.options;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Notification;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.PluginResult;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaSessionPluginTest {
+    private PluginHarness harness;
+
+    @After
+    public void tearDown() {
+        if (harness != null) {
+            harness.tearDown();
+        }
+    }
+
+    @Test
+    public void playbackBindsServiceAndPublishesSession() throws Exception {
+        harness = new PluginHarness();
+        harness.start();
+        harness.execute("setMetadata", options("title", "Song", "artist", "Artist", "album", "Album"));
+        harness.execute("setActionHandler", options("action", "pause"));
+        CallbackContext result = harness.execute("setPlaybackState", options("playbackState", "playing"));
+
+        assertEquals(PluginResult.Status.OK.ordinal(), result.getLastResult().getStatus());
+        ManagedSession session = harness.service.findSession(ManagedSession.DEFAULT_ID);
+        assertTrue(session.isInitialized());
+        assertTrue(session.isPlaying());
+        Notification notification = harness.notification(session);
+        assertNotNull(notification);
+        assertEquals("Song", notification.extras.getCharSequence(Notification.EXTRA_TITLE).toString());
+        assertEquals("Artist - Album", notification.extras.getCharSequence(Notification.EXTRA_TEXT).toString());
+    }
+
+    @Test
+    public void stoppingPlaybackPublishesFinalStateBeforeUnbinding() throws Exception {
+        harness = new PluginHarness().set("sessionStandbyTimeout", "60000");
+        harness.start();
+        harness.execute("setPlaybackState", options("playbackState", "playing"));
+        ManagedSession session = harness.service.findSession(ManagedSession.DEFAULT_ID);
+        assertTrue(session.isPlaying());
+
+        harness.execute("setPlaybackState", options("playbackState", "none"));
+
+        assertFalse(session.isPlaying());
+        assertEquals(1, shadowOf(RuntimeEnvironment.getApplication()).getUnboundServiceConnections().size());
+    }
+
+    @Test
+    public void rebindingToTheWarmSessionIsTimedApartFromTheColdBind() throws Exception {
+        harness = new PluginHarness().set("sessionStandbyTimeout", "60000");
+        harness.start();
+        long coldBinds = bindCount("serviceBindCold");
+        long warmBinds = bindCount("serviceBindWarm");
+
+        harness.execute("setPlaybackState", options("playbackState", "playing"));
+        harness.execute("setPlaybackState", options("playbackState", "none"));
+        harness.execute("setPlaybackState", options("playbackState", "playing"));
+
+        assertEquals(coldBinds + 1, bindCount("serviceBindCold"));
+        assertEquals(warmBinds + 1, bindCount("serviceBindWarm"));
+    }
+
+    @Test
+    public void actionsReachTheSessionEventChannel() throws Exception {
+        harness = new PluginHarness().set("foregroundService", "always");
+        harness.start();
+        harness.execute("setActionHandler", options("sessionId", "podcast", "action", "play"));
+        CallbackContext channel = harness.execute("registerEventChannel", options("sessionId", "podcast"));
+
+        harness.service.findSession("podcast").dispatchAction(MediaSessionActions.PLAY);
+
+        List<PluginResult> results = channel.getResults();
+        assertEquals(2, results.size());
+        assertEquals(PluginResult.Status.NO_RESULT.ordinal(), results.get(0).getStatus());
+        assertEquals(Integer.toString(MediaSessionActions.PLAY), results.get(1).getStrMessage());
+        assertTrue(results.get(1).getKeepCallback());
+    }
+
+    @Test
+    public void actionsForReleasedSessionAreDropped() throws Exception {
+        harness = new PluginHarness().set("foregroundService", "always");
+        harness.start();
+        harness.execute("setActionHandler", options("sessionId", "podcast", "action", "play"));
+        CallbackContext channel = harness.execute("registerEventChannel", options("sessionId", "podcast"));
+        harness.execute("releaseSession", options("sessionId", "podcast"));
+
+        harness.plugin.actionCallback("podcast", MediaSessionActions.PLAY);
+        CallbackContext position = harness.execute("getPosition", options("sessionId", "podcast"));
+        CallbackContext lateChannel = harness.execute("registerEventChannel", options("sessionId", "podcast"));
+
+        assertEquals(1, channel.getResults().size());
+        assertEquals(0.0f, (Float) position.getLastResult().getMessageObject(), 0.0f);
+        assertEquals(PluginResult.Status.ERROR.ordinal(), lateChannel.getLastResult().getStatus());
+        assertNull(harness.service.findSession("podcast"));
+    }
+
+    @Test
+    public void defaultSessionCannotBeReleased() throws Exception {
+        harness = new PluginHarness();
+        harness.start();
+
+        CallbackContext result = harness.execute("releaseSession", options("sessionId", ManagedSession.DEFAULT_ID));
+
+        assertEquals(PluginResult.Status.ERROR.ordinal(), result.getLastResult().getStatus());
+    }
+
+    // The stats are process-wide, so counts are compared before and after instead of from zero
+    private long bindCount(String timer) throws JSONException {
+        JSONObject stats = (JSONObject) harness.execute("getStats").getLastResult().getMessageObject();
+        return stats.getJSONObject("timers").getJSONObject(timer).getLong("count");
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.NotificationManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.os.Looper;
+import android.os.Process;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+
+import java.time.Duration;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaSessionServiceTest {
+    private static final String GEARHEAD = "com.google.android.projection.gearhead";
+    private static final int CLIENT_UID = 10123;
+    private static final int NOTIFICATION_ID = 1;
+
+    private ServiceController<MediaSessionService> controller;
+    private MediaSessionService service;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildService(MediaSessionService.class).create();
+        service = controller.get();
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void ownAppGetsTheRootAndTheSession() {
+        assertNotNull(service.onGetRoot(service.getPackageName(), Process.myUid(), null));
+        assertTrue(service.findSession(ManagedSession.DEFAULT_ID).isInitialized());
+    }
+
+    @Test
+    public void unknownBrowserIsTurnedAwayWithoutAttachingTheSession() {
+        installClient("com.example.browser", 0);
+
+        assertNull(service.onGetRoot("com.example.browser", CLIENT_UID, null));
+        assertFalse(service.findSession(ManagedSession.DEFAULT_ID).isInitialized());
+    }
+
+    @Test
+    public void knownControllerIsOnlyTrustedWhenPreinstalled() {
+        installClient(GEARHEAD, 0);
+        assertNull(service.onGetRoot(GEARHEAD, CLIENT_UID, null));
+
+        installClient(GEARHEAD, ApplicationInfo.FLAG_SYSTEM);
+        assertNotNull(service.onGetRoot(GEARHEAD, CLIENT_UID, null));
+    }
+
+    @Test
+    public void browserClaimingAnotherUidIsTurnedAway() {
+        installClient(GEARHEAD, ApplicationInfo.FLAG_SYSTEM);
+
+        assertNull(service.onGetRoot(GEARHEAD, CLIENT_UID + 1, null));
+    }
+
+    @Test
+    public void restoredSessionSurvivesMemoryPressureUntilTheProcessIsNextToGo() {
+        service.onStartCommand(new Intent(Intent.ACTION_MEDIA_BUTTON), 0, 1);
+
+        service.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        assertFalse(shadowOf(service).isStoppedBySelf());
+
+        service.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertTrue(shadowOf(service).isStoppedBySelf());
+    }
+
+    @Test
+    public void standbyLeavesTheNotificationUpUntilItExpires() {
+        service.setStandbyTimeout(60000);
+        service.onStartCommand(new Intent(Intent.ACTION_MEDIA_BUTTON), 0, 1);
+        NotificationManager notifications = (NotificationManager) service.getSystemService(Context.NOTIFICATION_SERVICE);
+
+        service.onUnbind(new Intent());
+        assertTrue(shadowOf(service).isForegroundStopped());
+        assertNotNull(shadowOf(notifications).getNotification(NOTIFICATION_ID));
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(60));
+        assertNull(shadowOf(notifications).getNotification(NOTIFICATION_ID));
+    }
+
+    private void installClient(String packageName, int flags) {
+        PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.applicationInfo = new ApplicationInfo();
+        info.applicationInfo.packageName = packageName;
+        info.applicationInfo.uid = CLIENT_UID;
+        info.applicationInfo.flags = flags;
+        shadowOf(service.getPackageManager()).installPackage(info);
+        shadowOf(service.getPackageManager()).setPackagesForUid(CLIENT_UID, packageName);
+    }
+}
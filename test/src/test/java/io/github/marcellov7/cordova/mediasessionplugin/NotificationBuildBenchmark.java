@@ -0,0 +1,95 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.annotation.SuppressLint;
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.support.v4.media.session.PlaybackStateCompat;
+
+import androidx.core.app.NotificationCompat;
+import androidx.media.app.NotificationCompat.MediaStyle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+// Notification builds while playback toggles between play and pause, so every build changes the visible actions.
+// sharedBuilder is the previous approach: one builder whose actions and compact view are rewritten on each change.
+// cachedSkeleton is the current one: the session's builder for the visible actions, patched with the metadata.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NotificationBuildBenchmark {
+    private static final String SESSION_ID = "notification-benchmark";
+    private static final int HANDLER_MASK = 1 << MediaSessionActions.PLAY | 1 << MediaSessionActions.PAUSE
+            | 1 << MediaSessionActions.PREVIOUS_TRACK | 1 << MediaSessionActions.NEXT_TRACK;
+    private static final String[] TITLES = {"First Song", "Second Song"};
+
+    private ManagedSession session;
+    private final int[] visibleMasks = new int[2];
+    private MediaStyle sharedStyle;
+    private NotificationCompat.Builder sharedBuilder;
+    private int tick;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        PluginHarness harness = Benchmarks.harness;
+        session = harness.service.session(SESSION_ID);
+        session.setActionMask(HANDLER_MASK);
+        session.setPlaybackState(PlaybackStateCompat.STATE_PAUSED);
+        session.update();
+        // The main looper attaches the session, after that nothing applies on it again
+        while (!session.isInitialized()) {
+            Thread.sleep(1);
+        }
+
+        visibleMasks[0] = MediaSessionActions.visibleMask(HANDLER_MASK, PlaybackStateCompat.STATE_PLAYING);
+        visibleMasks[1] = MediaSessionActions.visibleMask(HANDLER_MASK, PlaybackStateCompat.STATE_PAUSED);
+
+        sharedStyle = new MediaStyle().setMediaSession(session.getMediaSession().getSessionToken());
+        sharedBuilder = new NotificationCompat.Builder(harness.activity, "playback")
+                .setStyle(sharedStyle)
+                .setSmallIcon(android.R.drawable.ic_media_play)
+                .setContentIntent(PendingIntent.getActivity(harness.activity, 0, new Intent(), PendingIntent.FLAG_IMMUTABLE))
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Benchmarks.harness.service.releaseSession(SESSION_ID);
+    }
+
+    @Benchmark
+    @SuppressLint("RestrictedApi")
+    public Notification sharedBuilder() {
+        final int visibleActions = visibleMasks[++tick & 1];
+        sharedBuilder.mActions.clear();
+        for (int action : MediaSessionActions.notificationActions(visibleActions)) {
+            sharedBuilder.addAction(session.notificationAction(action));
+        }
+        sharedStyle.setShowActionsInCompactView(MediaSessionActions.compactViewIndices(visibleActions));
+        return patch(sharedBuilder);
+    }
+
+    @Benchmark
+    public Notification cachedSkeleton() {
+        return patch(session.notificationSkeleton(visibleMasks[++tick & 1]));
+    }
+
+    private Notification patch(NotificationCompat.Builder builder) {
+        final String title = TITLES[(tick >> 1) & 1];
+        return builder
+                .setContentTitle(title)
+                .setContentText("Artist Name - " + title)
+                .setLargeIcon((Bitmap) null)
+                .build();
+    }
+}
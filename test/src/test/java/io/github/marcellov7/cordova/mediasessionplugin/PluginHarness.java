@@ -0,0 +1,138 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+
+import org.apache.cordova.CallbackContext;
+import org.apache.cordova.CordovaInterface;
+import org.apache.cordova.CordovaPreferences;
+import org.apache.cordova.CordovaResourceApi;
+import org.apache.cordova.CordovaWebView;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the plugin against a Robolectric activity, with the service bound the way Cordova would bind it
+final class PluginHarness {
+    final Activity activity;
+    final CordovaPreferences preferences = new CordovaPreferences();
+    final ExecutorService threadPool = Executors.newCachedThreadPool();
+    private final AtomicInteger nextCallbackId = new AtomicInteger();
+    private ServiceController<MediaSessionService> serviceController;
+    MediaSessionService service;
+    MediaSessionPlugin plugin;
+
+    PluginHarness() {
+        activity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    PluginHarness set(String name, String value) {
+        preferences.set(name, value);
+        return this;
+    }
+
+    MediaSessionPlugin start() {
+        serviceController = Robolectric.buildService(MediaSessionService.class).create();
+        service = serviceController.get();
+        Application application = RuntimeEnvironment.getApplication();
+        Intent intent = new Intent(application, MediaSessionService.class);
+        shadowOf(application).setComponentNameAndServiceForBindService(
+                new ComponentName(application, MediaSessionService.class), service.onBind(intent));
+
+        final CordovaResourceApi resourceApi = new CordovaResourceApi(activity);
+        final CordovaWebView webView = new CordovaWebView() {
+            @Override
+            public Context getContext() {
+                return activity;
+            }
+
+            @Override
+            public CordovaResourceApi getResourceApi() {
+                return resourceApi;
+            }
+
+            @Override
+            public CordovaPreferences getPreferences() {
+                return preferences;
+            }
+        };
+        final CordovaInterface cordova = new CordovaInterface() {
+            @Override
+            public Activity getActivity() {
+                return activity;
+            }
+
+            @Override
+            public Context getContext() {
+                return activity;
+            }
+
+            @Override
+            public ExecutorService getThreadPool() {
+                return threadPool;
+            }
+        };
+        plugin = new MediaSessionPlugin();
+        plugin.privateInitialize("MediaSession", cordova, webView, preferences);
+        idle();
+        return plugin;
+    }
+
+    CallbackContext execute(String action, Object... args) throws JSONException {
+        return execute(new CallbackContext(action + nextCallbackId.incrementAndGet()), action, args);
+    }
+
+    // Called from a background thread this plays the Cordova plugin thread, the caller then drives the main looper
+    CallbackContext execute(CallbackContext callbackContext, String action, Object... args) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Object arg : args) {
+            array.put(arg != null ? arg : JSONObject.NULL);
+        }
+        assertTrue(plugin.execute(action, array, callbackContext));
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            idle();
+        }
+        return callbackContext;
+    }
+
+    Notification notification(ManagedSession session) {
+        NotificationManager notificationManager = (NotificationManager) activity.getSystemService(Context.NOTIFICATION_SERVICE);
+        return shadowOf(notificationManager).getNotification(session.getNotificationId());
+    }
+
+    // Lets posted applies and the throttled notification posts run
+    static void idle() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(250));
+    }
+
+    void tearDown() {
+        plugin.onDestroy();
+        serviceController.destroy();
+        threadPool.shutdownNow();
+    }
+
+    static JSONObject options(Object... keysAndValues) throws JSONException {
+        JSONObject options = new JSONObject();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            options.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return options;
+    }
+}
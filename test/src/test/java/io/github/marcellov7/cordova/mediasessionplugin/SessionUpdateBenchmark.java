@@ -0,0 +1,90 @@
+package io.github.marcellov7.cordova.mediasessionplugin;
+
+import android.support.v4.media.session.PlaybackStateCompat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+// update() fed with the setter mix a player produces: mostly positions, with track changes,
+// play/pause toggles and handler changes in between. The main looper applies the result concurrently.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SessionUpdateBenchmark {
+    private static final String SESSION_ID = "update-benchmark";
+    private static final String[] TITLES = {"First Song", "Second Song", "Third Song", "Fourth Song"};
+    private static final String[] ARTISTS = {"First Artist", "Second Artist", "Third Artist", "Fourth Artist"};
+    private static final int[] ACTION_MASKS = {
+            1 << MediaSessionActions.PLAY | 1 << MediaSessionActions.PAUSE,
+            1 << MediaSessionActions.PLAY | 1 << MediaSessionActions.PAUSE
+                    | 1 << MediaSessionActions.PREVIOUS_TRACK | 1 << MediaSessionActions.NEXT_TRACK
+    };
+
+    private ManagedSession session;
+
+    @State(Scope.Thread)
+    public static class Stream {
+        int tick;
+    }
+
+    @Setup
+    public void setUp() {
+        session = Benchmarks.harness.service.session(SESSION_ID);
+        session.setActionMask(ACTION_MASKS[0]);
+        session.setPlaybackState(PlaybackStateCompat.STATE_PLAYING);
+        session.update();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Benchmarks.harness.service.releaseSession(SESSION_ID);
+    }
+
+    @Benchmark
+    public void positionOnly(Stream stream) {
+        session.setPosition(++stream.tick * 250L);
+        session.update();
+    }
+
+    @Benchmark
+    public void mixedSetters(Stream stream) {
+        next(++stream.tick);
+        session.update();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void mixedSettersContended(Stream stream) {
+        next(++stream.tick);
+        session.update();
+    }
+
+    private void next(int tick) {
+        switch (tick & 15) {
+            case 0:
+                session.setTitle(TITLES[(tick >> 4) & 3]);
+                session.setArtist(ARTISTS[(tick >> 4) & 3]);
+                session.setDuration(180000 + (tick & 0xFFFF));
+                session.setPosition(0);
+                break;
+            case 5:
+                session.setPlaybackState((tick & 16) == 0 ? PlaybackStateCompat.STATE_PAUSED : PlaybackStateCompat.STATE_PLAYING);
+                break;
+            case 10:
+                session.setActionMask(ACTION_MASKS[(tick >> 4) & 1]);
+                break;
+            default:
+                session.setPosition(tick * 250L);
+                break;
+        }
+    }
+}
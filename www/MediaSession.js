@@ -1,5 +1,98 @@
 var exec = require('cordova/exec');
 
+// Indexed by the native action ids in MediaSessionActions.java
+var ACTIONS = ['previoustrack', 'seekbackward', 'play', 'pause', 'seekforward', 'nexttrack', 'seekto', 'stop', 'skiptoqueueitem', 'playfrommediaid'];
+var ACTION_PAYLOAD_KEYS = {
+    seekto: 'seekTime',
+    skiptoqueueitem: 'queueId',
+    playfrommediaid: 'mediaId'
+};
+var STRING_PAYLOAD_ACTIONS = {
+    playfrommediaid: true
+};
+
+var DEFAULT_SESSION_ID = 'default';
+
+// Action handlers and the event channel of every session, keyed by session id
+var sessions = {};
+
+function sessionIdOf(options) {
+    return (options && options.sessionId) || DEFAULT_SESSION_ID;
+}
+
+function getSession(sessionId) {
+    if (!sessions[sessionId]) {
+        sessions[sessionId] = { actionHandlers: {}, eventChannelRegistered: false, pending: null };
+    }
+    return sessions[sessionId];
+}
+
+function dispatchEvent(session, event) {
+    var message = String(event);
+    var separator = message.indexOf(':');
+    var action = ACTIONS[parseInt(separator === -1 ? message : message.substring(0, separator), 10)];
+    var handler = session.actionHandlers[action];
+    if (typeof handler !== 'function') {
+        return;
+    }
+    var details = { action: action };
+    if (separator !== -1) {
+        var payload = message.substring(separator + 1);
+        details[ACTION_PAYLOAD_KEYS[action] || 'value'] = STRING_PAYLOAD_ACTIONS[action] ? payload : parseFloat(payload);
+    }
+    handler(details);
+}
+
+function registerEventChannel(sessionId) {
+    var session = getSession(sessionId);
+    if (!session.eventChannelRegistered) {
+        session.eventChannelRegistered = true;
+        exec(function(event) {
+            dispatchEvent(session, event);
+        }, function() {
+            // No native session yet, e.g. the handler was rejected, the next handler retries
+            session.eventChannelRegistered = false;
+        }, 'MediaSession', 'registerEventChannel', [{ sessionId: sessionId }]);
+    }
+}
+
+function readBlobArtwork(options) {
+    var artwork = options && options.artwork;
+    var src = artwork && artwork.length > 0 ? artwork[0].src : null;
+    if (typeof src !== 'string' || src.indexOf('blob:') !== 0) {
+        return null;
+    }
+    return fetch(src).then(function(response) {
+        return response.arrayBuffer();
+    }).catch(function() {
+        return null;
+    });
+}
+
+// Calls of a session reach native in the order they were made. Only a blob artwork read holds them back:
+// while one is pending, later calls of that session queue behind it instead of overtaking it
+function send(action, options, artworkRead) {
+    var session = getSession(sessionIdOf(options));
+    if (!artworkRead && !session.pending) {
+        return new Promise(function(resolve, reject) {
+            exec(resolve, reject, 'MediaSession', action, [options]);
+        });
+    }
+    var sent;
+    var result = new Promise(function(resolve, reject) {
+        sent = Promise.all([session.pending, artworkRead]).then(function(values) {
+            exec(resolve, reject, 'MediaSession', action, values[1] ? [options, values[1]] : [options]);
+        });
+    });
+    session.pending = sent;
+    sent.then(function() {
+        if (session.pending === sent) {
+            session.pending = null;
+        }
+    });
+    return result;
+}
+
 var MediaSession = {
     isNative: function() {
         return cordova.platformId === 'android';
@@ -7,9 +100,7 @@ var MediaSession = {
 
     setMetadata: function(options) {
         if (this.isNative()) {
-            return new Promise(function(resolve, reject) {
-                exec(resolve, reject, 'MediaSession', 'setMetadata', [options]);
-            });
+            return send('setMetadata', options, readBlobArtwork(options));
         } else {
             if ('mediaSession' in navigator) {
                 navigator.mediaSession.metadata = new MediaMetadata({
@@ -25,9 +116,7 @@ var MediaSession = {
     
     setPlaybackState: function(options) {
         if (this.isNative()) {
-            return new Promise(function(resolve, reject) {
-                exec(resolve, reject, 'MediaSession', 'setPlaybackState', [options]);
-            });
+            return send('setPlaybackState', options);
         } else {
             if ('mediaSession' in navigator) {
                 navigator.mediaSession.playbackState = options.playbackState;
@@ -38,15 +127,14 @@ var MediaSession = {
     
     setActionHandler: function(options, handler) {
         if (this.isNative()) {
-            var success = function(result) {
-                if (typeof handler === 'function') {
-                    handler(result);
-                }
-            };
-            return new Promise(function(resolve, reject) {
-                exec(success, reject, 'MediaSession', 'setActionHandler', [options]);
-                resolve();
+            var sessionId = sessionIdOf(options);
+            getSession(sessionId).actionHandlers[options.action] = handler;
+            var result = new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'setActionHandler', [options]);
             });
+            // Sent after setActionHandler, which creates the native session the channel belongs to
+            registerEventChannel(sessionId);
+            return result;
         } else {
             if ('mediaSession' in navigator) {
                 navigator.mediaSession.setActionHandler(options.action, handler);
@@ -57,9 +145,7 @@ var MediaSession = {
     
     setPositionState: function(options) {
         if (this.isNative()) {
-            return new Promise(function(resolve, reject) {
-                exec(resolve, reject, 'MediaSession', 'setPositionState', [options]);
-            });
+            return send('setPositionState', options);
         } else {
             if ('mediaSession' in navigator) {
                 navigator.mediaSession.setPositionState({
@@ -70,6 +156,126 @@ var MediaSession = {
             }
             return Promise.resolve();
         }
+    },
+
+    getPosition: function(options) {
+        if (this.isNative()) {
+            return send('getPosition', options || {});
+        } else {
+            return Promise.resolve(null);
+        }
+    },
+
+    updateSession: function(options) {
+        if (this.isNative()) {
+            return send('updateSession', options, readBlobArtwork(options.metadata));
+        } else {
+            var updates = [];
+            if (options.metadata) {
+                updates.push(this.setMetadata(options.metadata));
+            }
+            if (options.playbackState) {
+                updates.push(this.setPlaybackState({ playbackState: options.playbackState }));
+            }
+            if (options.positionState) {
+                updates.push(this.setPositionState(options.positionState));
+            }
+            return Promise.all(updates).then(function() {});
+        }
+    },
+
+    prefetchArtwork: function(urls) {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'prefetchArtwork', [urls]);
+            });
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    clearArtworkCache: function() {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'clearArtworkCache', []);
+            });
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    getArtworkCacheStats: function() {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'getArtworkCacheStats', []);
+            });
+        } else {
+            return Promise.resolve({});
+        }
+    },
+
+    getStats: function() {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'getStats', []);
+            });
+        } else {
+            return Promise.resolve({});
+        }
+    },
+
+    setQueue: function(options) {
+        if (this.isNative()) {
+            return send('setQueue', options);
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    updateQueue: function(options) {
+        if (this.isNative()) {
+            return send('updateQueue', options);
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    setActiveQueueItem: function(options) {
+        if (this.isNative()) {
+            return send('setActiveQueueItem', options);
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    setBrowseTree: function(options) {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'setBrowseTree', [options]);
+            });
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    clearBrowseTree: function() {
+        if (this.isNative()) {
+            return new Promise(function(resolve, reject) {
+                exec(resolve, reject, 'MediaSession', 'clearBrowseTree', []);
+            });
+        } else {
+            return Promise.resolve();
+        }
+    },
+
+    releaseSession: function(options) {
+        if (this.isNative()) {
+            return send('releaseSession', options).then(function() {
+                delete sessions[sessionIdOf(options)];
+            });
+        } else {
+            return Promise.resolve();
+        }
     }
 };
 